@@ -14,14 +14,28 @@ package org.eclipse.wst.xsl.core;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jface.text.IDocument;
@@ -29,8 +43,13 @@ import org.eclipse.wst.common.uriresolver.internal.provisional.URIResolverPlugin
 import org.eclipse.wst.sse.core.StructuredModelManager;
 import org.eclipse.wst.sse.core.internal.provisional.IStructuredModel;
 import org.eclipse.wst.sse.core.internal.provisional.IndexedRegion;
+import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+import org.eclipse.wst.xsl.core.internal.model.IncludeGraph;
 import org.eclipse.wst.xsl.core.internal.model.StylesheetBuilder;
+import org.eclipse.wst.xsl.core.internal.util.BoundedCache;
 import org.eclipse.wst.xsl.core.internal.util.FileUtil;
+import org.eclipse.wst.xsl.core.internal.util.ResolvedFileCache;
+import org.eclipse.wst.xsl.core.model.Include;
 import org.eclipse.wst.xsl.core.model.Stylesheet;
 import org.eclipse.wst.xsl.core.model.StylesheetModel;
 import org.w3c.dom.Attr;
@@ -43,6 +62,21 @@ import org.w3c.dom.Node;
  * This is responsible for building and maintaining the cache of built XSL
  * models.
  * </p>
+ * <p>
+ * The cache may be accessed concurrently. Each file is built at most once at a
+ * time: threads asking for the same file share a single build, whereas
+ * different files are built in parallel. Reading an already built model never
+ * blocks on the build of another file.
+ * </p>
+ * <p>
+ * The cache is bounded; models evicted from it are transparently rebuilt the
+ * next time they are asked for.
+ * </p>
+ * <p>
+ * A reverse index of include and import relationships is maintained so that a
+ * change to one stylesheet only invalidates the models of the stylesheets that
+ * depend on it. Those models are re-fixed without reparsing their own files.
+ * </p>
  * 
  * @author Doug Satchwell
  */
@@ -57,8 +91,33 @@ public class XSLCore {
 	 */
 	public static final String XSL_CONTENT_TYPE = "org.eclipse.wst.xml.core.xslsource"; //$NON-NLS-1$
 
+	private static final BoundedCache.Weigher<StylesheetModel> WEIGHER = new BoundedCache.Weigher<StylesheetModel>() {
+		public int weigh(StylesheetModel model) {
+			return 1 + model.getTemplates().size()
+					+ model.getGlobalVariables().size()
+					+ model.getCallTemplates().size()
+					+ model.getFunctions().size()
+					+ model.getFileDependencies().size();
+		}
+	};
+
 	private static XSLCore instance;
-	private Map<IFile, StylesheetModel> stylesheetsComposed = new HashMap<IFile, StylesheetModel>();
+	private final BoundedCache<IFile, StylesheetModel> stylesheetsComposed = XSLCorePlugin
+			.<IFile, StylesheetModel> createModelCache(WEIGHER);
+	private final ConcurrentMap<IFile, BuildTask> builds = new ConcurrentHashMap<IFile, BuildTask>();
+	private final IncludeGraph includeGraph = new IncludeGraph();
+
+	/**
+	 * The models currently being fixed by the calling thread. A stylesheet
+	 * that (indirectly) includes itself gets its own partially fixed model
+	 * rather than waiting for a build that can never complete.
+	 */
+	private final ThreadLocal<Map<IFile, StylesheetModel>> modelsInProgress = new ThreadLocal<Map<IFile, StylesheetModel>>() {
+		@Override
+		protected Map<IFile, StylesheetModel> initialValue() {
+			return new HashMap<IFile, StylesheetModel>();
+		}
+	};
 
 	private XSLCore() {
 	}
@@ -70,31 +129,234 @@ public class XSLCore {
 	 * @return source file, or null if could not be built
 	 * @since 1.0
 	 */
-	public synchronized StylesheetModel getStylesheet(IFile file) {
-		StylesheetModel stylesheet = stylesheetsComposed.get(file);
-		if (stylesheet == null)
-			stylesheet = buildStylesheet(file);
-		return stylesheet;
+	public StylesheetModel getStylesheet(IFile file) {
+		Map<IFile, StylesheetModel> inProgress = modelsInProgress.get();
+		StylesheetModel stylesheet = inProgress.get(file);
+		if (stylesheet != null)
+			return stylesheet;
+		stylesheet = stylesheetsComposed.get(file);
+		if (stylesheet != null)
+			return stylesheet;
+
+		BuildTask task = builds.get(file);
+		if (task == null) {
+			BuildTask newTask = new BuildTask(file, false);
+			task = builds.putIfAbsent(file, newTask);
+			if (task == null) {
+				task = newTask;
+				task.run();
+			}
+		}
+		if (!task.isDone() && !inProgress.isEmpty()) {
+			// Another thread is building this file while this thread is
+			// itself in the middle of a build. Waiting could deadlock if the
+			// two builds include each other, so compose a private copy.
+			return composeStylesheet(file, false);
+		}
+		return waitFor(task);
 	}
 
 	/**
-	 * Completely rebuild the source file from its DOM
+	 * Completely rebuild the source file from its DOM. The models of the
+	 * stylesheets that include or import the file are invalidated, since the
+	 * file's contents may have changed.
 	 * 
 	 * @param file
 	 * @return the stylesheet model, or null if it could not be created.
 	 * @since 1.0
 	 */
-	public synchronized StylesheetModel buildStylesheet(IFile file) {
+	public StylesheetModel buildStylesheet(IFile file) {
+		return build(file, true);
+	}
+
+	/**
+	 * Re-fix the model of the given file from its last parsed stylesheet,
+	 * without reparsing the file. As with <code>buildStylesheet</code>, the
+	 * models of the stylesheets that include or import the file are
+	 * invalidated.
+	 * 
+	 * @param file
+	 * @return the stylesheet model, or null if it could not be created.
+	 * @since 1.1
+	 */
+	public StylesheetModel fixStylesheet(IFile file) {
+		return build(file, false);
+	}
+
+	private StylesheetModel build(IFile file, boolean forceParse) {
+		BuildTask task = new BuildTask(file, forceParse);
+		builds.put(file, task);
+		task.run();
+		List<IFile> dependents = includeGraph.getAffected(Collections
+				.singleton(file));
+		dependents.remove(file);
+		for (IFile dependent : dependents) {
+			discardModel(dependent);
+		}
+		return waitFor(task);
+	}
+
+	/**
+	 * Invalidate the models affected by changes to the given files: the models
+	 * of the files themselves, which will be reparsed, and those of all
+	 * stylesheets that include or import them directly or indirectly, which
+	 * will only be re-fixed. Models that are not affected are left untouched.
+	 * 
+	 * @param changedFiles
+	 *            the files that have changed
+	 * @return the affected files whose models were discarded, in topological
+	 *         order (each file after the files it includes or imports)
+	 * @since 1.1
+	 */
+	public List<IFile> invalidate(Collection<IFile> changedFiles) {
+		return invalidate(changedFiles, Collections.<IFile> emptySet());
+	}
+
+	/**
+	 * Invalidate the models affected by changes to the given files, as
+	 * <code>invalidate(Collection)</code> does. The models of stylesheets with
+	 * an include or import that did not resolve, but now resolves to one of
+	 * the added files, are invalidated too, together with the stylesheets
+	 * that include or import them.
+	 * 
+	 * @param changedFiles
+	 *            the files that have changed, including the added files
+	 * @param addedFiles
+	 *            the files that have been added
+	 * @return the affected files whose models were discarded, in topological
+	 *         order (each file after the files it includes or imports)
+	 * @since 1.1
+	 */
+	public List<IFile> invalidate(Collection<IFile> changedFiles,
+			Collection<IFile> addedFiles) {
+		for (IFile file : changedFiles) {
+			StylesheetBuilder.getInstance().release(file);
+		}
+		Set<IFile> invalid = new LinkedHashSet<IFile>(changedFiles);
+		if (!addedFiles.isEmpty())
+			invalid.addAll(getWaitingFor(addedFiles));
+		List<IFile> affected = includeGraph.getAffected(invalid);
+		List<IFile> discarded = new ArrayList<IFile>(affected.size());
+		for (IFile file : affected) {
+			if (discardModel(file))
+				discarded.add(file);
+		}
+		for (IFile file : changedFiles) {
+			if (!file.exists())
+				includeGraph.remove(file);
+		}
+		return discarded;
+	}
+
+	/**
+	 * Re-fix the models of the given files in the given order, reusing the
+	 * models of any stylesheets they depend on that are still valid.
+	 * 
+	 * @param files
+	 *            the files to rebuild, typically as returned by
+	 *            <code>invalidate</code>
+	 * @param monitor
+	 *            a progress monitor, or null
+	 * @since 1.1
+	 */
+	public void refresh(List<IFile> files, IProgressMonitor monitor) {
+		for (IFile file : files) {
+			if (monitor != null && monitor.isCanceled())
+				return;
+			if (file.exists())
+				getStylesheet(file);
+		}
+	}
+
+	private boolean discardModel(IFile file) {
+		boolean discarded = builds.remove(file) != null;
+		return stylesheetsComposed.remove(file) != null || discarded;
+	}
+
+	private StylesheetModel composeStylesheet(IFile file, boolean forceParse) {
 		Stylesheet stylesheet = StylesheetBuilder.getInstance().getStylesheet(
-				file, true);
+				file, forceParse);
 		if (stylesheet == null)
 			return null;
+		// recorded before fixing, as the cycle check reads the graph
+		includeGraph.setDependencies(file, getIncludedFiles(stylesheet
+				.getIncludes()), getIncludedFiles(stylesheet.getImports()));
+		List<String> unresolved = new ArrayList<String>();
+		getUnresolvedHrefs(stylesheet.getIncludes(), unresolved);
+		getUnresolvedHrefs(stylesheet.getImports(), unresolved);
+		includeGraph.setUnresolved(file, unresolved);
 		StylesheetModel stylesheetComposed = new StylesheetModel(stylesheet);
-		stylesheetsComposed.put(file, stylesheetComposed);
-		stylesheetComposed.fix();
+		Map<IFile, StylesheetModel> inProgress = modelsInProgress.get();
+		inProgress.put(file, stylesheetComposed);
+		try {
+			stylesheetComposed.fix();
+		} finally {
+			inProgress.remove(file);
+		}
 		return stylesheetComposed;
 	}
 
+	private static Set<IFile> getIncludedFiles(List<? extends Include> includes) {
+		Set<IFile> included = new HashSet<IFile>();
+		for (Include include : includes) {
+			IFile file = include.getHrefAsFile();
+			if (file != null)
+				included.add(file);
+		}
+		return included;
+	}
+
+	private static void getUnresolvedHrefs(List<? extends Include> includes,
+			List<String> unresolved) {
+		for (Include include : includes) {
+			String href = include.getHref();
+			if (href != null && href.trim().length() > 0
+					&& include.getHrefAsFile() == null)
+				unresolved.add(href);
+		}
+	}
+
+	private Set<IFile> getWaitingFor(Collection<IFile> files) {
+		// the files with an href that did not resolve, but now resolves to
+		// one of the given files
+		Set<IFile> waiting = new HashSet<IFile>();
+		Map<IFile, Set<String>> unresolved = includeGraph.getUnresolved();
+		if (unresolved.isEmpty())
+			return waiting;
+		for (Map.Entry<IFile, Set<String>> entry : unresolved.entrySet()) {
+			for (String href : entry.getValue()) {
+				IFile file = resolveFile(entry.getKey(), href);
+				if (file != null && files.contains(file))
+					waiting.add(entry.getKey());
+			}
+		}
+		return waiting;
+	}
+
+	private StylesheetModel waitFor(Future<StylesheetModel> future) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					XSLCorePlugin.log(cause);
+					return null;
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
 	/**
 	 * Clean all of the stylesheets from the given project.
 	 * 
@@ -103,16 +365,80 @@ public class XSLCore {
 	 * @param monitor
 	 *            a progress monitor to track the clean progress
 	 */
-	public synchronized void clean(IProject project, IProgressMonitor monitor) {
-		for (Iterator<StylesheetModel> iter = stylesheetsComposed.values()
-				.iterator(); iter.hasNext();) {
-			StylesheetModel model = iter.next();
-			if (project == null
-					|| project.equals(model.getStylesheet().getFile()
-							.getProject())) {
+	public void clean(IProject project, IProgressMonitor monitor) {
+		for (IFile file : stylesheetsComposed.keys()) {
+			if (project == null || project.equals(file.getProject())) {
+				stylesheetsComposed.remove(file);
+			}
+		}
+		for (Iterator<IFile> iter = builds.keySet().iterator(); iter.hasNext();) {
+			IFile file = iter.next();
+			if (project == null || project.equals(file.getProject())) {
 				iter.remove();
 			}
 		}
+		StylesheetBuilder builder = StylesheetBuilder.getInstance();
+		for (IFile file : builder.getCache().keys()) {
+			if (project == null || project.equals(file.getProject())) {
+				builder.release(file);
+			}
+		}
+		if (project == null)
+			includeGraph.clear();
+	}
+
+	/**
+	 * Get the files that the given file's unresolved includes and imports
+	 * would resolve to if they existed, so that the file can be validated
+	 * again when one of them is created. Only relative hrefs are considered.
+	 * 
+	 * @param file
+	 *            the including file
+	 * @return handles for the missing files
+	 * @since 1.1
+	 */
+	public Set<IFile> getMissingFiles(IFile file) {
+		Set<IFile> missing = new HashSet<IFile>();
+		for (String href : includeGraph.getUnresolved(file)) {
+			try {
+				if (new URI(href).isAbsolute())
+					continue;
+			} catch (URISyntaxException e) {
+				continue;
+			}
+			Path path = new Path(href);
+			if (path.isAbsolute() || path.segmentCount() == 0)
+				continue;
+			// appending removes "..", which may leave less than a project
+			// and a file name
+			IPath location = file.getParent().getFullPath().append(path);
+			if (location.segmentCount() >= 2)
+				missing.add(ResourcesPlugin.getWorkspace().getRoot().getFile(
+						location));
+		}
+		return missing;
+	}
+
+	/**
+	 * Get the cache of composed stylesheet models, for example to inspect its
+	 * hit, miss and eviction counts.
+	 * 
+	 * @return the model cache
+	 * @noreference This method is not intended to be referenced by clients.
+	 */
+	public BoundedCache<IFile, StylesheetModel> getModelCache() {
+		return stylesheetsComposed;
+	}
+
+	/**
+	 * Get the graph of include and import relationships between the
+	 * stylesheets that have been built.
+	 * 
+	 * @return the include graph
+	 * @noreference This method is not intended to be referenced by clients.
+	 */
+	public IncludeGraph getIncludeGraph() {
+		return includeGraph;
 	}
 
 	/**
@@ -138,6 +464,18 @@ public class XSLCore {
 	public static IFile resolveFile(IFile currentFile, String uri) {		
 		if (uri == null || uri.trim().length() == 0)
 			return null;		
+		Object cached = ResolvedFileCache.get(currentFile, uri);
+		if (cached == ResolvedFileCache.UNRESOLVED)
+			return null;
+		if (cached != null)
+			return (IFile) cached;
+		int generation = ResolvedFileCache.getGeneration();
+		IFile file = doResolveFile(currentFile, uri);
+		ResolvedFileCache.put(currentFile, uri, file, generation);
+		return file;
+	}
+
+	private static IFile doResolveFile(IFile currentFile, String uri) {
 		IResource resource = currentFile.getParent().findMember(new Path(uri));
 		if (resource == null) {
 			String baseURI = currentFile.getRawLocationURI().toString();
@@ -213,6 +551,19 @@ public class XSLCore {
 		return FileUtil.isXSLFile(file);
 	}
 
+	/**
+	 * Select the XSL files from the given files in one pass, for example to
+	 * classify a large selection.
+	 * 
+	 * @param files
+	 *            the files to check
+	 * @return the XSL files, in the order given
+	 * @since 1.1
+	 */
+	public static List<IFile> getXSLFiles(Collection<IFile> files) {
+		return FileUtil.getXSLFiles(files);
+	}
+
 	/**
 	 * Takes a given <code>Node</code> and returns whether it is part of the the
 	 * XSLT Namespace.
@@ -293,4 +644,36 @@ public class XSLCore {
 		return null;
 	}
 
+	/**
+	 * Builds the model for a file and, unless a newer build of the same file
+	 * has been started meanwhile, publishes it to the cache on completion.
+	 */
+	private class BuildTask extends FutureTask<StylesheetModel> {
+		private final IFile file;
+
+		BuildTask(final IFile file, final boolean forceParse) {
+			super(new Callable<StylesheetModel>() {
+				public StylesheetModel call() throws Exception {
+					return composeStylesheet(file, forceParse);
+				}
+			});
+			this.file = file;
+		}
+
+		@Override
+		protected void done() {
+			try {
+				StylesheetModel stylesheet = get();
+				// do not cache failures - try again next time
+				if (stylesheet != null && builds.get(file) == this)
+					stylesheetsComposed.put(file, stylesheet);
+			} catch (InterruptedException e) {
+				// cannot happen once the task is done
+			} catch (ExecutionException e) {
+				// reported to the callers waiting for the build
+			} finally {
+				builds.remove(file, this);
+			}
+		}
+	}
 }
@@ -87,6 +87,22 @@ public class Messages extends NLS {
 	 * TODO: Add JavaDoc
 	 */
 	public static String XIncludeTask_9;
+	/**
+	 * Output skipped because its include closure has not changed
+	 */
+	public static String XIncludeTask_10;
+	/**
+	 * The include manifest could not be written
+	 */
+	public static String XIncludeTask_11;
+	/**
+	 * Invalid number of threads
+	 */
+	public static String XIncludeTask_12;
+	/**
+	 * Output file given by more than one merge
+	 */
+	public static String XIncludeTask_13;
 	public static String XSLValidator_1;
 	/**
 	 * Stylesheet importing itself
@@ -120,10 +136,6 @@ public class Messages extends NLS {
 	 * Unresolved named template
 	 */
 	public static String XSLValidator_18;
-	/**
-	 * Circular reference
-	 */
-	public static String XSLValidator_2;
 	/**
 	 * Parameter without default value
 	 */
@@ -136,6 +148,10 @@ public class Messages extends NLS {
 	 * href attribute is required
 	 */
 	public static String XSLValidator_23;
+	/**
+	 * Circular reference, with the files forming it
+	 */
+	public static String XSLValidator_24;
 	/**
 	 * Missing parameter
 	 */
@@ -152,6 +168,15 @@ public class Messages extends NLS {
 	 *  Unresolved import
 	 */
 	public static String XSLValidator_8;
+	/**
+	 * Name of the job that rebuilds stylesheet models after a change
+	 */
+	public static String StylesheetChangeListener_refreshJob;
+
+	/**
+	 * Name of the job that removes index entries of deleted stylesheets
+	 */
+	public static String StylesheetIndex_pruneJob;
 	
 	
 
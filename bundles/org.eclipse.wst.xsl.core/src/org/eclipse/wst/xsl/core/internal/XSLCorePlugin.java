@@ -11,13 +11,25 @@
 
 package org.eclipse.wst.xsl.core.internal;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import javax.xml.parsers.SAXParserFactory;
 
 import org.apache.xerces.jaxp.SAXParserFactoryImpl;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Plugin;
+import org.eclipse.core.runtime.Preferences;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.xsl.core.internal.model.StylesheetChangeListener;
+import org.eclipse.wst.xsl.core.internal.util.BoundedCache;
+import org.eclipse.wst.xsl.core.internal.util.FileUtil;
+import org.eclipse.wst.xsl.core.internal.util.ResolvedFileCache;
+import org.eclipse.wst.xsl.core.internal.validation.ValidationPreferenceSnapshot;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -35,12 +47,44 @@ public class XSLCorePlugin extends Plugin {
 	 * 
 	 */
 	public static final String USE_PROJECT_SETTINGS = "use-project-settings";//$NON-NLS-1$
+
+	/**
+	 * The maximum total weight (roughly the number of model elements) that each
+	 * of the stylesheet model caches holds strongly. A change applies to the
+	 * existing caches at once.
+	 */
+	public static final String MODEL_CACHE_SIZE = "model-cache-size";//$NON-NLS-1$
+
+	/**
+	 * Whether models evicted from the stylesheet model caches are kept softly
+	 * reachable until memory runs low. A change applies only after a restart.
+	 */
+	public static final String MODEL_CACHE_SOFT_REFERENCES = "model-cache-soft-references";//$NON-NLS-1$
+
+	/**
+	 * Whether built stylesheets are persisted in the plug-in state location
+	 * so that unchanged files need not be reparsed after a restart.
+	 */
+	public static final String MODEL_INDEX = "model-index";//$NON-NLS-1$
 	
+	/**
+	 * The default value of the <code>MODEL_CACHE_SIZE</code> preference.
+	 */
+	public static final int DEFAULT_MODEL_CACHE_SIZE = 250000;
+
+	// the caches created by createModelCache, resized when the preference
+	// changes
+	private static final List<BoundedCache<?, ?>> modelCaches = new ArrayList<BoundedCache<?, ?>>();
+
 	// The shared instance
 	private static XSLCorePlugin plugin;
 	
 	private SAXParserFactoryImpl saxParserFactory = null;
 
+	private StylesheetChangeListener stylesheetChangeListener;
+
+	private Preferences.IPropertyChangeListener modelCacheSizeListener;
+
 	/**
 	 * The constructor
 	 */
@@ -55,6 +99,18 @@ public class XSLCorePlugin extends Plugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		stylesheetChangeListener = new StylesheetChangeListener();
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(
+				stylesheetChangeListener, IResourceChangeEvent.POST_CHANGE
+						| IResourceChangeEvent.PRE_CLOSE
+						| IResourceChangeEvent.PRE_DELETE);
+		modelCacheSizeListener = new Preferences.IPropertyChangeListener() {
+			public void propertyChange(Preferences.PropertyChangeEvent event) {
+				if (MODEL_CACHE_SIZE.equals(event.getProperty()))
+					resizeModelCaches();
+			}
+		};
+		getPluginPreferences().addPropertyChangeListener(modelCacheSizeListener);
 	}
 
 	/*
@@ -63,6 +119,20 @@ public class XSLCorePlugin extends Plugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		if (modelCacheSizeListener != null) {
+			getPluginPreferences().removePropertyChangeListener(
+					modelCacheSizeListener);
+			modelCacheSizeListener = null;
+		}
+		if (stylesheetChangeListener != null) {
+			ResourcesPlugin.getWorkspace().removeResourceChangeListener(
+					stylesheetChangeListener);
+			stylesheetChangeListener.dispose();
+			stylesheetChangeListener = null;
+		}
+		ValidationPreferenceSnapshot.dispose();
+		FileUtil.dispose();
+		ResolvedFileCache.dispose();
 		plugin = null;
 		super.stop(context);
 	}
@@ -81,7 +151,7 @@ public class XSLCorePlugin extends Plugin {
 	 * does not exist.	 * @return
 	 * @return returns a SAXParserFactory
 	 */
-	public SAXParserFactory getFactory() {
+	public synchronized SAXParserFactory getFactory() {
 		if (saxParserFactory == null) {
 			saxParserFactory = new SAXParserFactoryImpl();
 		}
@@ -94,6 +164,49 @@ public class XSLCorePlugin extends Plugin {
 		return theFactory;
 	}
 	
+	/**
+	 * Create a cache for stylesheet models, bounded according to the
+	 * <code>MODEL_CACHE_SIZE</code> and <code>MODEL_CACHE_SOFT_REFERENCES</code>
+	 * preferences.
+	 * 
+	 * @param weigher
+	 *            the weigher used to compute the weight of each model
+	 * @return a new cache
+	 */
+	public static <K, V> BoundedCache<K, V> createModelCache(
+			BoundedCache.Weigher<? super V> weigher) {
+		boolean softReferences = true;
+		if (plugin != null)
+			softReferences = plugin.getPluginPreferences().getBoolean(
+					MODEL_CACHE_SOFT_REFERENCES);
+		BoundedCache<K, V> cache = new BoundedCache<K, V>(getModelCacheSize(),
+				weigher, softReferences);
+		synchronized (modelCaches) {
+			modelCaches.add(cache);
+		}
+		return cache;
+	}
+
+	private static int getModelCacheSize() {
+		int size = DEFAULT_MODEL_CACHE_SIZE;
+		if (plugin != null) {
+			Preferences prefs = plugin.getPluginPreferences();
+			if (prefs.getInt(MODEL_CACHE_SIZE) > 0)
+				size = prefs.getInt(MODEL_CACHE_SIZE);
+		}
+		return size;
+	}
+
+	private static void resizeModelCaches() {
+		int size = getModelCacheSize();
+		synchronized (modelCaches) {
+			for (Iterator<BoundedCache<?, ?>> iter = modelCaches.iterator(); iter
+					.hasNext();) {
+				iter.next().setMaxWeight(size);
+			}
+		}
+	}
+
 	/**
 	 * Logs the specified status with this plug-in's log.
 	 * 
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.ant;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * The record of the files that a merged output was built from: the input file
+ * and every document it includes, directly or indirectly, each with its
+ * length, modification time and a hash of its contents.
+ * <p>
+ * The manifest is kept next to the output. An output is up to date if every
+ * recorded file is unchanged; files whose time stamp changed are hashed, so
+ * that touching a file does not force a rebuild.
+ * </p>
+ */
+public class XIncludeManifest {
+	private static final String SUFFIX = ".xinclude"; //$NON-NLS-1$
+	private static final String MISSING = "missing"; //$NON-NLS-1$
+	private static final String SEPARATOR = ";"; //$NON-NLS-1$
+	private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private final File file;
+	private final Properties entries = new Properties();
+
+	/**
+	 * Create the manifest for the given output, loading any existing record.
+	 *
+	 * @param out
+	 *            the merged output file
+	 */
+	public XIncludeManifest(File out) {
+		file = new File(out.getParentFile(), out.getName() + SUFFIX);
+		if (file.isFile()) {
+			try {
+				InputStream is = new BufferedInputStream(new FileInputStream(
+						file));
+				try {
+					entries.load(is);
+				} finally {
+					is.close();
+				}
+			} catch (IOException e) {
+				// treated as having no record
+				entries.clear();
+			}
+		}
+	}
+
+	/**
+	 * Determine whether none of the recorded files has changed since the
+	 * output was built.
+	 *
+	 * @return false if there is no record, or any recorded file has changed or
+	 *         cannot be checked
+	 */
+	public boolean isUpToDate() {
+		if (entries.isEmpty())
+			return false;
+		for (Object key : entries.keySet()) {
+			String uri = (String) key;
+			String recorded = entries.getProperty(uri);
+			File included = toFile(uri);
+			if (included == null)
+				return false;
+			String current = describe(included, recorded);
+			if (current == null || !hashOf(current).equals(hashOf(recorded)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Replace the record with the given files, and save it.
+	 *
+	 * @param uris
+	 *            the absolute URIs of the files the output was built from
+	 * @throws IOException
+	 *             if the manifest cannot be written
+	 */
+	public void record(Collection<String> uris) throws IOException {
+		Properties previous = new Properties();
+		previous.putAll(entries);
+		entries.clear();
+		for (String uri : uris) {
+			File included = toFile(uri);
+			String description = included == null ? null : describe(
+					included, previous.getProperty(uri));
+			if (description == null) {
+				// cannot be checked, so the output is never up to date
+				file.delete();
+				return;
+			}
+			entries.setProperty(uri, description);
+		}
+		OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			entries.store(os, null);
+		} finally {
+			os.close();
+		}
+	}
+
+	/**
+	 * Delete the saved record, so that the output is not considered up to
+	 * date until a new record is saved. The record loaded by this is kept, to
+	 * reuse its hashes.
+	 */
+	public void delete() {
+		file.delete();
+	}
+
+	/**
+	 * Describe the current state of the given file, reusing the hash of the
+	 * given previous description if the file's time stamp is unchanged.
+	 */
+	private static String describe(File included, String previous) {
+		if (!included.exists())
+			return MISSING;
+		String stamp = included.length() + SEPARATOR + included.lastModified();
+		if (previous != null && previous.startsWith(stamp + SEPARATOR))
+			return previous;
+		try {
+			return stamp + SEPARATOR + hash(included);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static String hashOf(String description) {
+		int index = description.lastIndexOf(SEPARATOR);
+		return index < 0 ? description : description.substring(index + 1);
+	}
+
+	private static String hash(File included) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e.getMessage());
+		}
+		byte[] buffer = new byte[64 * 1024];
+		InputStream is = new FileInputStream(included);
+		try {
+			int read;
+			while ((read = is.read(buffer)) >= 0) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			is.close();
+		}
+		byte[] bytes = digest.digest();
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+			hex[2 * i + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	private static File toFile(String uri) {
+		if (!uri.startsWith("file:")) //$NON-NLS-1$
+			return null;
+		try {
+			return new File(new URI(uri));
+		} catch (URISyntaxException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+}
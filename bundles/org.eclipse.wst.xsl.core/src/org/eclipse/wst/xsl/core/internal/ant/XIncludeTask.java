@@ -12,8 +12,16 @@
 package org.eclipse.wst.xsl.core.internal.ant;
 
 import java.io.File;
-import java.util.Collection;
-import java.util.Vector;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
@@ -23,6 +31,13 @@ import org.eclipse.wst.xsl.core.internal.xinclude.XIncluder;
 
 /**
  * This class provides an XInclude ANT task definition.
+ * <p>
+ * Besides the <code>in</code> and <code>out</code> attributes, any number of
+ * nested <code>&lt;merge in="..." out="..."/&gt;</code> elements may be given.
+ * An output is only rebuilt if its input or any document it includes has
+ * changed, as recorded in a manifest next to the output. Independent outputs
+ * are merged in parallel by up to <code>threads</code> threads.
+ * </p>
  * 
  * @author Lars Vogel
  *
@@ -32,6 +47,10 @@ public class XIncludeTask extends Task {
 
 	private String outFile;
 
+	private int threads = 1;
+
+	private final List<Merge> merges = new ArrayList<Merge>();
+
 	/**
 	 * TODO: Add JavaDoc 
 	 * @param inFile
@@ -50,88 +69,148 @@ public class XIncludeTask extends Task {
 		this.outFile = outFile;
 	}
 
+	/**
+	 * Set the number of outputs that may be merged at the same time.
+	 * @param threads the number of threads, 1 by default
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Create a nested merge of one input file into one output file.
+	 * @return the new merge
+	 */
+	public Merge createMerge() {
+		Merge merge = new Merge();
+		merges.add(merge);
+		return merge;
+	}
+
 	@Override
 	public void execute() {
 		validate();
 		log(Messages.XIncludeTask_2, Project.MSG_VERBOSE);
-		File file = new File(inFile);
-		if (!file.exists()) {
-			throw new BuildException(Messages.XIncludeTask_3
-					+ inFile);
+		List<Merge> all = new ArrayList<Merge>();
+		if (inFile != null || outFile != null) {
+			Merge merge = new Merge();
+			merge.setIn(inFile);
+			merge.setOut(outFile);
+			all.add(merge);
 		}
-		// We will check if the file exists, if not we will try to create the
-		// output file and or the output directory
-		File fileout = new File(outFile);
-		File dir = new File(fileout.getParent());
-		if (!dir.exists()) {
-			log(Messages.XIncludeTask_4 + dir.getAbsolutePath());
-
-			Boolean success = (new File(dir.getAbsolutePath())).mkdirs();
-			if (!success) {
-				throw new BuildException(Messages.XIncludeTask_5
-						+ outFile);
+		all.addAll(merges);
+		if (threads == 1 || all.size() == 1) {
+			XIncluder includer = new XIncluder();
+			for (Merge merge : all) {
+				merge(merge, includer);
 			}
+			return;
 		}
-		// check if the included files are modified after the last run
-		// Assumption that all the included files are part of the input file
-		// directory
-		if (checkmodified(inFile, outFile)) {
-			log(Messages.XIncludeTask_6,
-					Project.MSG_INFO);
-			XIncluder la = new XIncluder();
-			try {
-				la.extractXMLFile(inFile, outFile);
-			} catch (Exception e) {
-				throw new BuildException(Messages.XIncludeTask_7
-						+ e.getMessage());
+		// the includer's cache of small documents is shared by the threads
+		final XIncluder includer = new XIncluder();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+				threads, all.size()));
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>(all.size());
+			for (final Merge merge : all) {
+				futures.add(executor.submit(new Runnable() {
+					public void run() {
+						merge(merge, includer);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new BuildException(cause);
+				} catch (InterruptedException e) {
+					throw new BuildException(e);
+				}
 			}
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
-	private boolean checkmodified(String inFile, String outFile) {
-		File in = new File(inFile);
-		File out = new File(outFile);
-		File dir = new File(in.getParent());
-
-		Collection<File> allFiles = listFiles(dir, true);
-		for (File f : allFiles) {
-			if (f.lastModified() > out.lastModified()) {
-				return true;
+	private void merge(Merge merge, XIncluder includer) {
+		File file = new File(merge.inFile);
+		if (!file.exists()) {
+			throw new BuildException(Messages.XIncludeTask_3
+					+ merge.inFile);
+		}
+		// We will check if the file exists, if not we will try to create the
+		// output file and or the output directory
+		File fileout = new File(merge.outFile);
+		File dir = fileout.getAbsoluteFile().getParentFile();
+		synchronized (this) {
+			if (!dir.exists()) {
+				log(Messages.XIncludeTask_4 + dir.getAbsolutePath());
+
+				boolean success = dir.mkdirs();
+				if (!success) {
+					throw new BuildException(Messages.XIncludeTask_5
+							+ merge.outFile);
+				}
 			}
 		}
-		return false;
+		// check if the input or any file it includes was modified after the
+		// last run
+		XIncludeManifest manifest = new XIncludeManifest(fileout);
+		if (fileout.exists() && manifest.isUpToDate()) {
+			log(Messages.XIncludeTask_10 + merge.outFile,
+					Project.MSG_VERBOSE);
+			return;
+		}
+		log(Messages.XIncludeTask_6, Project.MSG_INFO);
+		// the old record would match a partly written output
+		manifest.delete();
+		Set<String> included = new LinkedHashSet<String>();
+		included.add(file.getAbsoluteFile().toURI().toString());
+		boolean merged = false;
+		try {
+			includer.extractXMLFile(merge.inFile, merge.outFile, included);
+			merged = true;
+		} catch (Exception e) {
+			throw new BuildException(Messages.XIncludeTask_7
+					+ e.getMessage());
+		} finally {
+			if (!merged)
+				fileout.delete();
+		}
+		try {
+			manifest.record(included);
+		} catch (IOException e) {
+			log(Messages.XIncludeTask_11 + e.getMessage(), Project.MSG_WARN);
+		}
 	}
 
-	/**
-	 * TODO: Add JavaDoc
-	 * @param directory
-	 * @param recurse
-	 * @return
-	 */
-	public Collection<File> listFiles(File directory, boolean recurse) {
-		// List of files / directories
-		Vector<File> files = new Vector<File>();
-
-		// Get files / directories in the directory
-		File[] entries = directory.listFiles();
-
-		// Go over entries
-		for (File entry : entries) {
-
-			files.add(entry);
-
-			// If the file is a directory and the recurse flag
-			// is set, recurse into the directory
-			if (recurse && entry.isDirectory()) {
-				files.addAll(listFiles(entry, recurse));
+	private void validate() {
+		if (threads < 1) {
+			throw new BuildException(Messages.XIncludeTask_12);
+		}
+		if (merges.isEmpty() || inFile != null || outFile != null) {
+			validate(inFile, outFile);
+		}
+		Set<File> outFiles = new HashSet<File>();
+		if (outFile != null)
+			outFiles.add(new File(outFile).getAbsoluteFile());
+		for (Merge merge : merges) {
+			validate(merge.inFile, merge.outFile);
+			// merges of the same output would write it at the same time
+			if (!outFiles.add(new File(merge.outFile).getAbsoluteFile())) {
+				throw new BuildException(Messages.XIncludeTask_13
+						+ merge.outFile);
 			}
 		}
-
-		// Return collection of files
-		return files;
 	}
 
-	private void validate() {
+	private void validate(String inFile, String outFile) {
 		if (inFile == null) {
 			throw new BuildException(Messages.XIncludeTask_8);
 		}
@@ -139,4 +218,29 @@ public class XIncludeTask extends Task {
 			throw new BuildException(Messages.XIncludeTask_9);
 		}
 	}
+
+	/**
+	 * A nested merge of one input file into one output file.
+	 */
+	public static class Merge {
+		private String inFile;
+
+		private String outFile;
+
+		/**
+		 * Set the input file.
+		 * @param inFile the full path to the input XML file
+		 */
+		public void setIn(String inFile) {
+			this.inFile = inFile;
+		}
+
+		/**
+		 * Set the output file.
+		 * @param outFile the full path to the merged XML file
+		 */
+		public void setOut(String outFile) {
+			this.outFile = outFile;
+		}
+	}
 }
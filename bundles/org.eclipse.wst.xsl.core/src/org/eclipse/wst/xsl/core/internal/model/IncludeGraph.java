@@ -0,0 +1,355 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+
+/**
+ * The graph of include and import relationships between stylesheets, together
+ * with its reverse index (file to the stylesheets that include or import it).
+ * <p>
+ * The graph only knows about stylesheets that have been built; it is updated
+ * each time a stylesheet model is fixed. Hrefs that did not resolve to a file
+ * are kept too, so that the stylesheets waiting for a missing file can be
+ * found when it appears.
+ * </p>
+ *
+ * @since 1.1
+ */
+public class IncludeGraph {
+	private final Map<IFile, Set<IFile>> dependencies = new HashMap<IFile, Set<IFile>>();
+	private final Map<IFile, Set<IFile>> dependents = new HashMap<IFile, Set<IFile>>();
+	// the subset of the dependencies that are includes rather than imports
+	private final Map<IFile, Set<IFile>> includes = new HashMap<IFile, Set<IFile>>();
+	private final Map<IFile, Set<String>> unresolved = new HashMap<IFile, Set<String>>();
+
+	/**
+	 * Replace the files directly included or imported by the given file.
+	 *
+	 * @param file
+	 *            the including file
+	 * @param included
+	 *            the files it directly includes
+	 * @param imported
+	 *            the files it directly imports
+	 */
+	public synchronized void setDependencies(IFile file,
+			Collection<IFile> included, Collection<IFile> imported) {
+		Set<IFile> old = dependencies.remove(file);
+		includes.remove(file);
+		if (old != null) {
+			for (IFile dependency : old) {
+				Set<IFile> set = dependents.get(dependency);
+				if (set != null) {
+					set.remove(file);
+					if (set.isEmpty())
+						dependents.remove(dependency);
+				}
+			}
+		}
+		Set<IFile> all = new LinkedHashSet<IFile>(included);
+		all.addAll(imported);
+		if (all.isEmpty())
+			return;
+		dependencies.put(file, all);
+		if (!included.isEmpty())
+			includes.put(file, new LinkedHashSet<IFile>(included));
+		for (IFile dependency : all) {
+			Set<IFile> set = dependents.get(dependency);
+			if (set == null) {
+				set = new HashSet<IFile>();
+				dependents.put(dependency, set);
+			}
+			set.add(file);
+		}
+	}
+
+	/**
+	 * Replace the hrefs of the given file's includes and imports that did not
+	 * resolve to a file.
+	 *
+	 * @param file
+	 *            the including file
+	 * @param hrefs
+	 *            the unresolved hrefs
+	 */
+	public synchronized void setUnresolved(IFile file, Collection<String> hrefs) {
+		if (hrefs.isEmpty())
+			unresolved.remove(file);
+		else
+			unresolved.put(file, new LinkedHashSet<String>(hrefs));
+	}
+
+	/**
+	 * Get the unresolved hrefs of the given file.
+	 *
+	 * @param file
+	 *            the including file
+	 * @return an unmodifiable snapshot of the unresolved hrefs
+	 */
+	public synchronized Set<String> getUnresolved(IFile file) {
+		Set<String> set = unresolved.get(file);
+		if (set == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(new LinkedHashSet<String>(set));
+	}
+
+	/**
+	 * Get the unresolved hrefs of every file that has any.
+	 *
+	 * @return a snapshot of the unresolved hrefs, by including file
+	 */
+	public synchronized Map<IFile, Set<String>> getUnresolved() {
+		Map<IFile, Set<String>> snapshot = new HashMap<IFile, Set<String>>();
+		for (Map.Entry<IFile, Set<String>> entry : unresolved.entrySet()) {
+			snapshot.put(entry.getKey(), new LinkedHashSet<String>(entry
+					.getValue()));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Get the files directly included or imported by the given file.
+	 *
+	 * @param file
+	 *            the including file
+	 * @return an unmodifiable snapshot of the direct dependencies
+	 */
+	public synchronized Set<IFile> getDependencies(IFile file) {
+		Set<IFile> set = dependencies.get(file);
+		if (set == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(new LinkedHashSet<IFile>(set));
+	}
+
+	/**
+	 * Get the files that directly include or import the given file.
+	 *
+	 * @param file
+	 *            the included file
+	 * @return an unmodifiable snapshot of the direct dependents
+	 */
+	public synchronized Set<IFile> getDependents(IFile file) {
+		Set<IFile> set = dependents.get(file);
+		if (set == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(new HashSet<IFile>(set));
+	}
+
+	/**
+	 * Get the given files together with every file that includes or imports
+	 * any of them, directly or indirectly. The result is in topological order:
+	 * each file appears after the files it depends on (except where there are
+	 * circular references, which are broken arbitrarily).
+	 *
+	 * @param changed
+	 *            the changed files
+	 * @return the affected files, in topological order
+	 */
+	public synchronized List<IFile> getAffected(Collection<IFile> changed) {
+		Set<IFile> affected = new HashSet<IFile>();
+		List<IFile> pending = new ArrayList<IFile>(changed);
+		while (!pending.isEmpty()) {
+			IFile file = pending.remove(pending.size() - 1);
+			if (affected.add(file)) {
+				Set<IFile> set = dependents.get(file);
+				if (set != null)
+					pending.addAll(set);
+			}
+		}
+		List<IFile> sorted = new ArrayList<IFile>(affected.size());
+		Set<IFile> visited = new HashSet<IFile>();
+		for (IFile file : affected) {
+			sort(file, affected, visited, sorted);
+		}
+		return sorted;
+	}
+
+	/**
+	 * Forget everything known about the given file's own dependencies. Files
+	 * that include the given file still refer to it.
+	 *
+	 * @param file
+	 *            the file to remove
+	 */
+	public synchronized void remove(IFile file) {
+		setDependencies(file, Collections.<IFile> emptySet(), Collections
+				.<IFile> emptySet());
+		unresolved.remove(file);
+	}
+
+	/**
+	 * Remove all files from this.
+	 */
+	public synchronized void clear() {
+		dependencies.clear();
+		dependents.clear();
+		includes.clear();
+		unresolved.clear();
+	}
+
+	/**
+	 * Find a circular chain of includes among the files reachable from the
+	 * given files by following include relationships. Each file is visited
+	 * once, by a single strongly connected components pass (Tarjan's
+	 * algorithm). A cycle through the first of the given files is preferred.
+	 *
+	 * @param roots
+	 *            the files to start from
+	 * @return the files forming the cycle, starting and ending with the same
+	 *         file, or an empty list if there is no cycle
+	 */
+	public synchronized List<IFile> findIncludeCycle(Collection<IFile> roots) {
+		Map<IFile, int[]> links = new HashMap<IFile, int[]>();
+		List<IFile> stack = new ArrayList<IFile>();
+		Set<IFile> onStack = new HashSet<IFile>();
+		List<IFile> cycle = Collections.emptyList();
+		IFile first = roots.isEmpty() ? null : roots.iterator().next();
+		for (IFile root : roots) {
+			if (links.containsKey(root))
+				continue;
+			// iterative, since include chains may be very deep
+			List<IFile> path = new ArrayList<IFile>();
+			List<Iterator<IFile>> children = new ArrayList<Iterator<IFile>>();
+			visit(root, links, stack, onStack, path, children);
+			while (!path.isEmpty()) {
+				int last = path.size() - 1;
+				IFile file = path.get(last);
+				int[] fileLinks = links.get(file);
+				Iterator<IFile> next = children.get(last);
+				if (next.hasNext()) {
+					IFile child = next.next();
+					int[] childLinks = links.get(child);
+					if (childLinks == null)
+						visit(child, links, stack, onStack, path, children);
+					else if (onStack.contains(child))
+						fileLinks[1] = Math.min(fileLinks[1], childLinks[0]);
+					continue;
+				}
+				path.remove(last);
+				children.remove(last);
+				if (last > 0) {
+					int[] parentLinks = links.get(path.get(last - 1));
+					parentLinks[1] = Math.min(parentLinks[1], fileLinks[1]);
+				}
+				if (fileLinks[1] != fileLinks[0])
+					continue;
+				// the file is the root of a strongly connected component
+				Set<IFile> component = new HashSet<IFile>();
+				IFile member;
+				do {
+					member = stack.remove(stack.size() - 1);
+					onStack.remove(member);
+					component.add(member);
+				} while (member != file);
+				if (component.size() == 1 && !getIncludes(file).contains(file))
+					continue;
+				if (cycle.isEmpty())
+					cycle = findCycle(file, component);
+				if (component.contains(first))
+					return findCycle(first, component);
+			}
+		}
+		return cycle;
+	}
+
+	private void visit(IFile file, Map<IFile, int[]> links, List<IFile> stack,
+			Set<IFile> onStack, List<IFile> path, List<Iterator<IFile>> children) {
+		// the index of the file in visiting order, and its low link
+		links.put(file, new int[] { links.size(), links.size() });
+		stack.add(file);
+		onStack.add(file);
+		path.add(file);
+		children.add(getIncludes(file).iterator());
+	}
+
+	private List<IFile> findCycle(IFile start, Set<IFile> component) {
+		// the shortest path back to the start within the component
+		Map<IFile, IFile> previous = new HashMap<IFile, IFile>();
+		List<IFile> pending = new ArrayList<IFile>();
+		pending.add(start);
+		for (int i = 0; i < pending.size(); i++) {
+			IFile file = pending.get(i);
+			for (IFile child : getIncludes(file)) {
+				if (child.equals(start)) {
+					List<IFile> cycle = new ArrayList<IFile>();
+					cycle.add(start);
+					for (IFile step = file; step != start; step = previous
+							.get(step)) {
+						cycle.add(step);
+					}
+					cycle.add(start);
+					Collections.reverse(cycle);
+					return cycle;
+				}
+				if (component.contains(child) && !previous.containsKey(child)) {
+					previous.put(child, file);
+					pending.add(child);
+				}
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	private Set<IFile> getIncludes(IFile file) {
+		Set<IFile> set = includes.get(file);
+		if (set == null)
+			return Collections.emptySet();
+		return set;
+	}
+
+	private void sort(IFile root, Set<IFile> affected, Set<IFile> visited,
+			List<IFile> sorted) {
+		// iterative post-order walk, since include chains may be very deep
+		if (!visited.add(root))
+			return;
+		List<IFile> path = new ArrayList<IFile>();
+		List<List<IFile>> children = new ArrayList<List<IFile>>();
+		path.add(root);
+		children.add(affectedDependencies(root, affected));
+		while (!path.isEmpty()) {
+			List<IFile> next = children.get(children.size() - 1);
+			if (next.isEmpty()) {
+				sorted.add(path.remove(path.size() - 1));
+				children.remove(children.size() - 1);
+			} else {
+				IFile child = next.remove(next.size() - 1);
+				if (visited.add(child)) {
+					path.add(child);
+					children.add(affectedDependencies(child, affected));
+				}
+			}
+		}
+	}
+
+	private List<IFile> affectedDependencies(IFile file, Set<IFile> affected) {
+		List<IFile> list = new ArrayList<IFile>();
+		Set<IFile> set = dependencies.get(file);
+		if (set != null) {
+			for (IFile dependency : set) {
+				if (affected.contains(dependency))
+					list.add(dependency);
+			}
+		}
+		return list;
+	}
+}
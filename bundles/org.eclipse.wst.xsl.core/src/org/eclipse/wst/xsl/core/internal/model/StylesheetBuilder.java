@@ -14,9 +14,9 @@
 package org.eclipse.wst.xsl.core.internal.model;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.wst.sse.core.StructuredModelManager;
@@ -24,17 +24,33 @@ import org.eclipse.wst.sse.core.internal.provisional.IStructuredModel;
 import org.eclipse.wst.xml.core.internal.provisional.document.IDOMDocument;
 import org.eclipse.wst.xml.core.internal.provisional.document.IDOMModel;
 import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+import org.eclipse.wst.xsl.core.internal.util.BoundedCache;
 import org.eclipse.wst.xsl.core.internal.util.Debug;
 import org.eclipse.wst.xsl.core.model.Stylesheet;
+import org.eclipse.wst.xsl.core.model.XSLElement;
 
 /**
  * A builder that creates and maintains a cache of <code>Stylesheet</code>'s.
+ * Files open in an editor are built from their structured model; other files
+ * are streamed with SAX, falling back to a structured model if they are not
+ * well-formed.
+ * The cache is safe for concurrent use and is bounded by the number of model
+ * elements it holds; evicted stylesheets are simply rebuilt when next needed.
  * 
  * @author Doug Satchwell
  */
 public class StylesheetBuilder {
+	private static final BoundedCache.Weigher<Stylesheet> WEIGHER = new BoundedCache.Weigher<Stylesheet>() {
+		public int weigh(Stylesheet stylesheet) {
+			return countElements(stylesheet);
+		}
+	};
+
 	private static StylesheetBuilder instance;
-	private final Map<IFile, Stylesheet> builtFiles = new HashMap<IFile, Stylesheet>();
+	private StylesheetIndex index;
+	private boolean indexInitialized;
+	private final BoundedCache<IFile, Stylesheet> builtFiles = XSLCorePlugin
+			.<IFile, Stylesheet> createModelCache(WEIGHER);
 
 	private StylesheetBuilder() {
 	}
@@ -52,10 +68,11 @@ public class StylesheetBuilder {
 	 * @return the <code>Stylesheet</code>
 	 */
 	public Stylesheet getStylesheet(IFile file, boolean force) {
-		Stylesheet stylesheet = builtFiles.get(file);
-		if (stylesheet == null || force) {
+		Stylesheet stylesheet = force ? null : builtFiles.get(file);
+		if (stylesheet == null) {
 			stylesheet = build(file);
-			builtFiles.put(file, stylesheet);
+			if (stylesheet != null)
+				builtFiles.put(file, stylesheet);
 		}
 		return stylesheet;
 	}
@@ -68,10 +85,38 @@ public class StylesheetBuilder {
 
 		Stylesheet stylesheet = null;
 		IStructuredModel smodel = null;
+		boolean indexable = false;
 		try {
 			smodel = StructuredModelManager.getModelManager()
 					.getExistingModelForRead(file);
 			if (smodel == null) {
+				// not open in an editor, so the file contents are current
+				StylesheetIndex index = getIndex();
+				if (index != null) {
+					stylesheet = index.read(file);
+					if (stylesheet != null) {
+						if (Debug.debugXSLModel) {
+							long end = System.currentTimeMillis();
+							System.out.println("INDEXED " + file + " in " //$NON-NLS-1$ //$NON-NLS-2$
+									+ (end - start) + "ms"); //$NON-NLS-1$
+						}
+						return stylesheet;
+					}
+					indexable = true;
+				}
+				// stream the file rather than loading a structured model,
+				// unless it is not well-formed
+				stylesheet = StylesheetSAXParser.parse(file);
+				if (stylesheet != null) {
+					if (Debug.debugXSLModel) {
+						long end = System.currentTimeMillis();
+						System.out.println("SAX PARSE " + file + " in " //$NON-NLS-1$ //$NON-NLS-2$
+								+ (end - start) + "ms"); //$NON-NLS-1$
+					}
+					if (indexable)
+						getIndex().write(file, stylesheet);
+					return stylesheet;
+				}
 				smodel = StructuredModelManager.getModelManager()
 						.getModelForRead(file);
 				if (Debug.debugXSLModel) {
@@ -88,6 +133,8 @@ public class StylesheetBuilder {
 			if (smodel != null && smodel instanceof IDOMModel) {
 				IDOMModel model = (IDOMModel) smodel;
 				stylesheet = parseModel(model, file);
+				if (indexable)
+					getIndex().write(file, stylesheet);
 			}
 		} catch (IOException e) {
 			XSLCorePlugin.log(e);
@@ -104,6 +151,28 @@ public class StylesheetBuilder {
 		return stylesheet;
 	}
 
+	/**
+	 * Get the persistent index of built stylesheets, or null if it is
+	 * disabled or the plug-in is not running.
+	 * 
+	 * @return the index, or null
+	 */
+	public synchronized StylesheetIndex getIndex() {
+		if (!indexInitialized) {
+			indexInitialized = true;
+			XSLCorePlugin plugin = XSLCorePlugin.getDefault();
+			if (plugin != null
+					&& plugin.getPluginPreferences().getBoolean(
+							XSLCorePlugin.MODEL_INDEX)) {
+				index = new StylesheetIndex(plugin.getStateLocation()
+						.append("stylesheets").toFile()); //$NON-NLS-1$
+				// files may have been deleted while the workbench was closed
+				index.schedulePrune();
+			}
+		}
+		return index;
+	}
+
 	private Stylesheet parseModel(IDOMModel model, IFile file) {
 		IDOMDocument document = model.getDocument();
 		Stylesheet sf = new Stylesheet(file);
@@ -128,17 +197,37 @@ public class StylesheetBuilder {
 	 * Releases all the cached stylesheets.
 	 */
 	public void release() {
-		if (builtFiles.isEmpty()) {
-			return;
-		}
-		Iterator<IFile> it = builtFiles.keySet().iterator();
-		while (it.hasNext()) {
-			it.next();
-			it.remove();
-		}
+		builtFiles.clear();
 	}
 	
 	public void release(IFile file) {
 		builtFiles.remove(file);
+		if (!file.exists()) {
+			StylesheetIndex index = getIndex();
+			if (index != null)
+				index.remove(file);
+		}
+	}
+
+	/**
+	 * Get the cache of built stylesheets, for example to inspect its hit, miss
+	 * and eviction counts.
+	 * 
+	 * @return the stylesheet cache
+	 */
+	public BoundedCache<IFile, Stylesheet> getCache() {
+		return builtFiles;
+	}
+
+	private static int countElements(Stylesheet stylesheet) {
+		int count = 0;
+		List<XSLElement> pending = new ArrayList<XSLElement>();
+		pending.add(stylesheet);
+		while (!pending.isEmpty()) {
+			XSLElement element = pending.remove(pending.size() - 1);
+			count += 1 + element.getAttributes().size();
+			pending.addAll(element.getChildElements());
+		}
+		return count;
 	}
 }
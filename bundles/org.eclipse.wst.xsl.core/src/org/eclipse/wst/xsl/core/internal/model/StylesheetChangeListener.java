@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.wst.xsl.core.XSLCore;
+import org.eclipse.wst.xsl.core.internal.Messages;
+import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+import org.eclipse.wst.xsl.core.internal.util.FileStampCache;
+import org.eclipse.wst.xsl.core.internal.util.FileUtil;
+import org.eclipse.wst.xsl.core.internal.util.ResolvedFileCache;
+import org.eclipse.wst.xsl.core.internal.validation.ValidationPreferenceSnapshot;
+
+/**
+ * Listens for changes to workspace files and incrementally updates the cached
+ * stylesheet models. Affected models are invalidated immediately, and those
+ * that were cached are re-fixed in the background in topological order.
+ * Cached values derived from the files' contents are dropped, as are resolved
+ * hrefs when XML files or folders are added, removed or moved. Stylesheets
+ * whose includes did not resolve are invalidated when the missing file is
+ * added. The validation preferences of projects that are closed or deleted
+ * are forgotten.
+ */
+public class StylesheetChangeListener implements IResourceChangeListener {
+	private final RefreshJob job = new RefreshJob();
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		if (event.getType() == IResourceChangeEvent.PRE_CLOSE
+				|| event.getType() == IResourceChangeEvent.PRE_DELETE) {
+			// the project's preference node is about to be removed
+			if (event.getResource() instanceof IProject)
+				ValidationPreferenceSnapshot.forget((IProject) event
+						.getResource());
+			return;
+		}
+		IResourceDelta delta = event.getDelta();
+		if (delta == null)
+			return;
+		final Set<IFile> changed = new LinkedHashSet<IFile>();
+		final Set<IFile> added = new LinkedHashSet<IFile>();
+		final boolean[] moved = new boolean[1];
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta delta) throws CoreException {
+					IResource resource = delta.getResource();
+					if (!moved[0] && isMove(delta))
+						moved[0] = true;
+					if (resource.getType() == IResource.FILE) {
+						if (delta.getKind() != IResourceDelta.CHANGED
+								|| (delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0)
+							changed.add((IFile) resource);
+						// only XML files can be what a missing href names,
+						// and checking is costly, so build output is skipped
+						if (delta.getKind() == IResourceDelta.ADDED
+								&& isXMLFile((IFile) resource))
+							added.add((IFile) resource);
+						return false;
+					}
+					return true;
+				}
+			});
+		} catch (CoreException e) {
+			XSLCorePlugin.log(e);
+		}
+		// hrefs may now resolve to different files
+		if (moved[0])
+			ResolvedFileCache.clear();
+		if (changed.isEmpty())
+			return;
+		FileStampCache.invalidate(changed);
+		List<IFile> discarded = XSLCore.getInstance().invalidate(changed, added);
+		if (!discarded.isEmpty())
+			job.refresh(discarded);
+	}
+
+	private static boolean isMove(IResourceDelta delta) {
+		IResource resource = delta.getResource();
+		if (delta.getKind() == IResourceDelta.CHANGED)
+			return (delta.getFlags() & IResourceDelta.OPEN) != 0;
+		// only hrefs to XML files are resolved, so other files, such as build
+		// output, cannot change what an href resolves to
+		if (resource.getType() == IResource.FILE)
+			return isXMLFile((IFile) resource);
+		return !resource.isDerived();
+	}
+
+	private static boolean isXMLFile(IFile file) {
+		return FileUtil.isXMLFile(file) || FileUtil.isXSLFile(file);
+	}
+
+	/**
+	 * Stop any pending background refresh.
+	 */
+	public void dispose() {
+		job.cancel();
+	}
+
+	private static class RefreshJob extends Job {
+		private final Set<IFile> pending = new LinkedHashSet<IFile>();
+
+		RefreshJob() {
+			super(Messages.StylesheetChangeListener_refreshJob);
+			setSystem(true);
+			setPriority(DECORATE);
+		}
+
+		void refresh(List<IFile> files) {
+			synchronized (pending) {
+				// keep the topological order of the latest request
+				pending.removeAll(files);
+				pending.addAll(files);
+			}
+			schedule(200);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			List<IFile> files;
+			synchronized (pending) {
+				files = new ArrayList<IFile>(pending);
+				pending.clear();
+			}
+			XSLCore.getInstance().refresh(files, monitor);
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+}
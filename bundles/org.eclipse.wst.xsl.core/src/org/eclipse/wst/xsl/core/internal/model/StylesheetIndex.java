@@ -0,0 +1,634 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.wst.xsl.core.internal.Messages;
+import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+import org.eclipse.wst.xsl.core.model.CallTemplate;
+import org.eclipse.wst.xsl.core.model.Function;
+import org.eclipse.wst.xsl.core.model.Import;
+import org.eclipse.wst.xsl.core.model.Include;
+import org.eclipse.wst.xsl.core.model.Parameter;
+import org.eclipse.wst.xsl.core.model.Stylesheet;
+import org.eclipse.wst.xsl.core.model.Template;
+import org.eclipse.wst.xsl.core.model.Variable;
+import org.eclipse.wst.xsl.core.model.XSLAttribute;
+import org.eclipse.wst.xsl.core.model.XSLElement;
+import org.eclipse.wst.xsl.core.model.XSLNode;
+
+/**
+ * A persistent, binary index of built <code>Stylesheet</code>'s, used to avoid
+ * reparsing unchanged files when the workbench starts.
+ * <p>
+ * Each stylesheet is stored in its own entry, keyed by the file path and
+ * validated against the file's modification stamp and content hash. An entry
+ * whose stamp differs but whose content is unchanged (for example after a
+ * checkout) is still used, and is given the new stamp so that the file is not
+ * hashed again next time. An entry that cannot be read is deleted.
+ * </p>
+ * <p>
+ * Entries of files that were deleted while the workbench was not running are
+ * removed by <code>schedulePrune</code>.
+ * </p>
+ */
+public class StylesheetIndex {
+	private static final int MAGIC = 0x58534C49; // XSLI
+	private static final int VERSION = 1;
+
+	private static final byte ELEMENT = 0;
+	private static final byte STYLESHEET = 1;
+	private static final byte INCLUDE = 2;
+	private static final byte IMPORT = 3;
+	private static final byte TEMPLATE = 4;
+	private static final byte CALL_TEMPLATE = 5;
+	private static final byte VARIABLE = 6;
+	private static final byte PARAMETER = 7;
+	private static final byte FUNCTION = 8;
+
+	private final File directory;
+
+	/**
+	 * Create an index stored in the given directory.
+	 *
+	 * @param directory
+	 *            the directory holding the index entries
+	 */
+	public StylesheetIndex(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Read the indexed stylesheet for the given file, if the index holds an
+	 * up-to-date entry for it.
+	 *
+	 * @param file
+	 *            the XSL file
+	 * @return the stylesheet, or null if there is no valid entry
+	 */
+	public Stylesheet read(IFile file) {
+		File entry = getEntry(file);
+		if (!entry.isFile())
+			return null;
+		// no length or count in a valid entry exceeds its size
+		long limit = entry.length();
+		String path = file.getFullPath().toString();
+		long currentStamp = file.getModificationStamp();
+		boolean restamp;
+		Stylesheet stylesheet;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(entry)));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException();
+			if (!path.equals(in.readUTF()))
+				return null;
+			long stamp = in.readLong();
+			byte[] hash = new byte[readCount(in, limit)];
+			in.readFully(hash);
+			restamp = stamp != currentStamp;
+			if (restamp && !Arrays.equals(hash, computeHash(file)))
+				return null;
+			stylesheet = readStylesheet(in, file, limit);
+		} catch (IOException e) {
+			// corrupt or truncated entry - reparse
+			close(in);
+			entry.delete();
+			return null;
+		} catch (RuntimeException e) {
+			// an element of the wrong kind, or an index out of range
+			close(in);
+			entry.delete();
+			return null;
+		} catch (CoreException e) {
+			return null;
+		} finally {
+			close(in);
+		}
+		if (restamp)
+			writeStamp(entry, path, currentStamp);
+		return stylesheet;
+	}
+
+	private static void writeStamp(File entry, String path, long stamp) {
+		RandomAccessFile out = null;
+		try {
+			// the stamp follows the magic, the version and the path
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			DataOutputStream data = new DataOutputStream(header);
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+			data.writeUTF(path);
+			data.flush();
+			out = new RandomAccessFile(entry, "rw"); //$NON-NLS-1$
+			out.seek(header.size());
+			out.writeLong(stamp);
+		} catch (IOException e) {
+			// the file is hashed again next time
+		} finally {
+			close(out);
+		}
+	}
+
+	/**
+	 * Store the given stylesheet as the entry for the given file, which is
+	 * assumed to have been built from the file's current contents.
+	 *
+	 * @param file
+	 *            the XSL file
+	 * @param stylesheet
+	 *            the stylesheet built from the file
+	 */
+	public void write(IFile file, Stylesheet stylesheet) {
+		long stamp = file.getModificationStamp();
+		File entry = getEntry(file);
+		File temp = new File(directory, entry.getName() + "." //$NON-NLS-1$
+				+ Thread.currentThread().getId() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = null;
+		try {
+			byte[] hash = computeHash(file);
+			directory.mkdirs();
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(temp)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(file.getFullPath().toString());
+			out.writeLong(stamp);
+			out.writeInt(hash.length);
+			out.write(hash);
+			writeStylesheet(out, stylesheet);
+			out.close();
+			out = null;
+			entry.delete();
+			if (!temp.renameTo(entry))
+				temp.delete();
+		} catch (IOException e) {
+			XSLCorePlugin.log(e);
+			temp.delete();
+		} catch (CoreException e) {
+			// file has gone - nothing to index
+			temp.delete();
+		} finally {
+			close(out);
+		}
+	}
+
+	/**
+	 * Remove the entry for the given file.
+	 *
+	 * @param file
+	 *            the XSL file
+	 */
+	public void remove(IFile file) {
+		getEntry(file).delete();
+	}
+
+	/**
+	 * Remove the entries of files that no longer exist, in a background job.
+	 * Entries of files in closed projects are kept.
+	 */
+	public void schedulePrune() {
+		Job job = new Job(Messages.StylesheetIndex_pruneJob) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				prune(monitor);
+				return monitor.isCanceled() ? Status.CANCEL_STATUS
+						: Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+		job.schedule();
+	}
+
+	private void prune(IProgressMonitor monitor) {
+		File[] entries = directory.listFiles();
+		if (entries == null)
+			return;
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		for (File entry : entries) {
+			if (monitor.isCanceled())
+				return;
+			String path = entry.getName().endsWith(".idx") ? readPath(entry) //$NON-NLS-1$
+					: null;
+			if (path == null) {
+				// unreadable, or a temporary file left by a crash; a temporary
+				// file still being written fails to rename and is rewritten
+				entry.delete();
+				continue;
+			}
+			IPath fullPath = new Path(path);
+			if (fullPath.segmentCount() < 2) {
+				entry.delete();
+				continue;
+			}
+			IProject project = root.getProject(fullPath.segment(0));
+			if (project.exists() && !project.isOpen())
+				continue;
+			if (!root.getFile(fullPath).exists())
+				entry.delete();
+		}
+	}
+
+	private static String readPath(File entry) {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(entry)));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+			return in.readUTF();
+		} catch (IOException e) {
+			return null;
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		File[] entries = directory.listFiles();
+		if (entries != null) {
+			for (File entry : entries) {
+				entry.delete();
+			}
+		}
+	}
+
+	private File getEntry(IFile file) {
+		byte[] digest = digest().digest(
+				file.getFullPath().toString().getBytes());
+		return new File(directory, toHex(digest) + ".idx"); //$NON-NLS-1$
+	}
+
+	private static byte[] computeHash(IFile file) throws CoreException,
+			IOException {
+		MessageDigest digest = digest();
+		InputStream in = file.getContents(true);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return digest.digest();
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("MD5"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			// every JRE is required to support MD5
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	private static void close(Closeable stream) {
+		if (stream != null) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	// ////////////////////////////////////////////////////////////////////////
+	// WRITING
+	// ////////////////////////////////////////////////////////////////////////
+
+	private void writeStylesheet(DataOutputStream out, Stylesheet stylesheet)
+			throws IOException {
+		// number every element reachable from the stylesheet, either as a
+		// child element or through one of the model's lists
+		Map<XSLElement, Integer> ids = new IdentityHashMap<XSLElement, Integer>();
+		List<XSLElement> elements = new ArrayList<XSLElement>();
+		number(stylesheet, ids, elements);
+		number(stylesheet.getIncludes(), ids, elements);
+		number(stylesheet.getImports(), ids, elements);
+		number(stylesheet.getTemplates(), ids, elements);
+		number(stylesheet.getCalledTemplates(), ids, elements);
+		number(stylesheet.getGlobalVariables(), ids, elements);
+		number(stylesheet.getFunctions(), ids, elements);
+		for (int i = 0; i < elements.size(); i++) {
+			XSLElement element = elements.get(i);
+			if (element instanceof Template) {
+				number(((Template) element).getParameters(), ids, elements);
+			} else if (element instanceof Function) {
+				number(((Function) element).getParameters(), ids, elements);
+				number(((Function) element).getVariables(), ids, elements);
+			} else if (element instanceof CallTemplate) {
+				number(((CallTemplate) element).getParameters(), ids, elements);
+			}
+		}
+
+		out.writeInt(elements.size());
+		for (XSLElement element : elements) {
+			out.writeByte(kindOf(element));
+		}
+		for (XSLElement element : elements) {
+			writeNode(out, element);
+			if (element instanceof Parameter)
+				out.writeBoolean(isValueSet((Parameter) element));
+			out.writeInt(element.getAttributes().size());
+			for (XSLAttribute attribute : element.getAttributes().values()) {
+				writeString(out, attribute.getValue());
+				writeNode(out, attribute);
+			}
+			writeIds(out, element.getChildElements(), ids);
+			if (element instanceof Template) {
+				writeIds(out, ((Template) element).getParameters(), ids);
+			} else if (element instanceof Function) {
+				writeIds(out, ((Function) element).getParameters(), ids);
+				writeIds(out, ((Function) element).getVariables(), ids);
+			} else if (element instanceof CallTemplate) {
+				writeIds(out, ((CallTemplate) element).getParameters(), ids);
+			}
+		}
+		writeString(out, stylesheet.getVersion());
+		writeIds(out, stylesheet.getIncludes(), ids);
+		writeIds(out, stylesheet.getImports(), ids);
+		writeIds(out, stylesheet.getTemplates(), ids);
+		writeIds(out, stylesheet.getCalledTemplates(), ids);
+		writeIds(out, stylesheet.getGlobalVariables(), ids);
+		writeIds(out, stylesheet.getFunctions(), ids);
+	}
+
+	private static void number(List<? extends XSLElement> list,
+			Map<XSLElement, Integer> ids, List<XSLElement> elements) {
+		for (XSLElement element : list) {
+			number(element, ids, elements);
+		}
+	}
+
+	private static void number(XSLElement root, Map<XSLElement, Integer> ids,
+			List<XSLElement> elements) {
+		List<XSLElement> pending = new ArrayList<XSLElement>();
+		pending.add(root);
+		while (!pending.isEmpty()) {
+			XSLElement element = pending.remove(pending.size() - 1);
+			if (!ids.containsKey(element)) {
+				ids.put(element, Integer.valueOf(elements.size()));
+				elements.add(element);
+				List<XSLElement> children = element.getChildElements();
+				for (int i = children.size() - 1; i >= 0; i--) {
+					pending.add(children.get(i));
+				}
+			}
+		}
+	}
+
+	private static byte kindOf(XSLElement element) {
+		if (element instanceof Stylesheet)
+			return STYLESHEET;
+		if (element instanceof Import)
+			return IMPORT;
+		if (element instanceof Include)
+			return INCLUDE;
+		if (element instanceof Template)
+			return TEMPLATE;
+		if (element instanceof CallTemplate)
+			return CALL_TEMPLATE;
+		if (element instanceof Parameter)
+			return PARAMETER;
+		if (element instanceof Variable)
+			return VARIABLE;
+		if (element instanceof Function)
+			return FUNCTION;
+		return ELEMENT;
+	}
+
+	private static boolean isValueSet(Parameter param) {
+		// isValue() also considers the select attribute, which is restored
+		// with the other attributes anyway
+		return param.isValue() && param.getAttributeValue("select") == null; //$NON-NLS-1$
+	}
+
+	private static void writeNode(DataOutputStream out, XSLNode node)
+			throws IOException {
+		writeString(out, node.getName());
+		out.writeInt(node.getOffset());
+		out.writeInt(node.getLength());
+		out.writeInt(node.getLineNumber());
+		out.writeInt(node.getColumnNumber());
+	}
+
+	private static void writeIds(DataOutputStream out,
+			List<? extends XSLElement> list, Map<XSLElement, Integer> ids)
+			throws IOException {
+		out.writeInt(list.size());
+		for (XSLElement element : list) {
+			out.writeInt(ids.get(element).intValue());
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes("UTF-8"); //$NON-NLS-1$
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	// ////////////////////////////////////////////////////////////////////////
+	// READING
+	// ////////////////////////////////////////////////////////////////////////
+
+	private Stylesheet readStylesheet(DataInputStream in, IFile file,
+			long limit) throws IOException {
+		Stylesheet stylesheet = new Stylesheet(file);
+		int count = readCount(in, limit);
+		XSLElement[] elements = new XSLElement[count];
+		for (int i = 0; i < count; i++) {
+			byte kind = in.readByte();
+			if (i == 0) {
+				if (kind != STYLESHEET)
+					throw new IOException();
+				elements[i] = stylesheet;
+			} else {
+				elements[i] = create(kind, stylesheet);
+			}
+		}
+		for (XSLElement element : elements) {
+			readNode(in, element, limit);
+			if (element instanceof Parameter)
+				((Parameter) element).setValue(in.readBoolean());
+			int attributes = readCount(in, limit);
+			for (int i = 0; i < attributes; i++) {
+				String value = readString(in, limit);
+				XSLAttribute attribute = new XSLAttribute(element,
+						readString(in, limit), value);
+				readPosition(in, attribute);
+				element.setAttribute(attribute);
+			}
+			int children = readCount(in, limit);
+			for (int i = 0; i < children; i++) {
+				element.addChild(elements[in.readInt()]);
+			}
+			if (element instanceof Template) {
+				Template template = (Template) element;
+				int params = readCount(in, limit);
+				for (int i = 0; i < params; i++) {
+					template.addParameter((Parameter) elements[in.readInt()]);
+				}
+			} else if (element instanceof Function) {
+				Function function = (Function) element;
+				int params = readCount(in, limit);
+				for (int i = 0; i < params; i++) {
+					function.addParameter((Parameter) elements[in.readInt()]);
+				}
+				int vars = readCount(in, limit);
+				for (int i = 0; i < vars; i++) {
+					function.addVariable((Variable) elements[in.readInt()]);
+				}
+			} else if (element instanceof CallTemplate) {
+				CallTemplate callTemplate = (CallTemplate) element;
+				int params = readCount(in, limit);
+				for (int i = 0; i < params; i++) {
+					callTemplate
+							.addParameter((Parameter) elements[in.readInt()]);
+				}
+			}
+		}
+		stylesheet.setVersion(readString(in, limit));
+		int size = readCount(in, limit);
+		for (int i = 0; i < size; i++) {
+			stylesheet.addInclude((Include) elements[in.readInt()]);
+		}
+		size = readCount(in, limit);
+		for (int i = 0; i < size; i++) {
+			stylesheet.addImport((Import) elements[in.readInt()]);
+		}
+		size = readCount(in, limit);
+		for (int i = 0; i < size; i++) {
+			stylesheet.addTemplate((Template) elements[in.readInt()]);
+		}
+		size = readCount(in, limit);
+		for (int i = 0; i < size; i++) {
+			stylesheet.addCalledTemplate((CallTemplate) elements[in.readInt()]);
+		}
+		size = readCount(in, limit);
+		for (int i = 0; i < size; i++) {
+			stylesheet.addGlobalVariable((Variable) elements[in.readInt()]);
+		}
+		size = readCount(in, limit);
+		for (int i = 0; i < size; i++) {
+			stylesheet.addFunction((Function) elements[in.readInt()]);
+		}
+		return stylesheet;
+	}
+
+	private static XSLElement create(byte kind, Stylesheet stylesheet)
+			throws IOException {
+		switch (kind) {
+		case ELEMENT:
+			return new XSLElement(stylesheet);
+		case INCLUDE:
+			return new Include(stylesheet);
+		case IMPORT:
+			return new Import(stylesheet);
+		case TEMPLATE:
+			return new Template(stylesheet);
+		case CALL_TEMPLATE:
+			return new CallTemplate(stylesheet);
+		case VARIABLE:
+			return new Variable(stylesheet);
+		case PARAMETER:
+			return new Parameter(stylesheet);
+		case FUNCTION:
+			return new Function(stylesheet);
+		default:
+			throw new IOException("Unknown element kind " + kind); //$NON-NLS-1$
+		}
+	}
+
+	private static void readNode(DataInputStream in, XSLNode node, long limit)
+			throws IOException {
+		node.setName(readString(in, limit));
+		readPosition(in, node);
+	}
+
+	private static void readPosition(DataInputStream in, XSLNode node)
+			throws IOException {
+		node.setOffset(in.readInt());
+		node.setLength(in.readInt());
+		node.setLineNumber(in.readInt());
+		node.setColumnNumber(in.readInt());
+	}
+
+	private static int readCount(DataInputStream in, long limit)
+			throws IOException {
+		int count = in.readInt();
+		if (count < 0 || count > limit)
+			throw new IOException("Invalid count " + count); //$NON-NLS-1$
+		return count;
+	}
+
+	private static String readString(DataInputStream in, long limit)
+			throws IOException {
+		int length = in.readInt();
+		if (length == -1)
+			return null;
+		if (length < 0 || length > limit)
+			throw new IOException("Invalid length " + length); //$NON-NLS-1$
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8"); //$NON-NLS-1$
+	}
+}
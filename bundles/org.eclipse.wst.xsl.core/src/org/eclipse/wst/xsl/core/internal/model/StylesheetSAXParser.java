@@ -0,0 +1,502 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.model;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.wst.xsl.core.XSLCore;
+import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+import org.eclipse.wst.xsl.core.model.CallTemplate;
+import org.eclipse.wst.xsl.core.model.Function;
+import org.eclipse.wst.xsl.core.model.Import;
+import org.eclipse.wst.xsl.core.model.Include;
+import org.eclipse.wst.xsl.core.model.Parameter;
+import org.eclipse.wst.xsl.core.model.Stylesheet;
+import org.eclipse.wst.xsl.core.model.Template;
+import org.eclipse.wst.xsl.core.model.Variable;
+import org.eclipse.wst.xsl.core.model.XSLAttribute;
+import org.eclipse.wst.xsl.core.model.XSLElement;
+import org.eclipse.wst.xsl.core.model.XSLModelObject;
+import org.eclipse.wst.xsl.core.model.XSLNode;
+import org.w3c.dom.Element;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Builds a <code>Stylesheet</code> directly from a SAX stream of the file
+ * contents, without loading a structured model. It creates the same model
+ * objects, with the same positions, as the DOM based
+ * <code>StylesheetParser</code> and <code>XSLModelObjectFactory</code>.
+ * <p>
+ * Unlike the structured model, SAX cannot recover from malformed XML, so
+ * <code>parse</code> returns null for files that are not well-formed and the
+ * caller is expected to fall back to the DOM based parser.
+ * </p>
+ *
+ * @since 1.1
+ */
+public class StylesheetSAXParser extends DefaultHandler implements
+		LexicalHandler {
+	private static final String VARIABLE = "variable"; //$NON-NLS-1$
+	private static final String FUNCTION = "function"; //$NON-NLS-1$
+	private static final String WITH_PARAM = "with-param"; //$NON-NLS-1$
+	private static final String CALL_TEMPLATE = "call-template"; //$NON-NLS-1$
+	private static final String PARAM = "param"; //$NON-NLS-1$
+	private static final String TEMPLATE = "template"; //$NON-NLS-1$
+	private static final String IMPORT = "import"; //$NON-NLS-1$
+	private static final String INCLUDE = "include"; //$NON-NLS-1$
+	private static final String STYLESHEET = "stylesheet"; //$NON-NLS-1$
+
+	private final char[] text;
+	private final int textStart;
+	private final int[] lineStarts;
+	private final StylesheetParserData data = new StylesheetParserData(
+			new Stack<Element>(), new Stack<CallTemplate>(),
+			new Stack<Function>());
+	private final List<Frame> frames = new ArrayList<Frame>();
+	private Locator locator;
+	private boolean inDTD;
+
+	private StylesheetSAXParser(Stylesheet stylesheet, char[] text,
+			int textStart) {
+		this.text = text;
+		this.textStart = textStart;
+		this.lineStarts = computeLineStarts(text, textStart);
+		data.setStylesheet(stylesheet);
+	}
+
+	/**
+	 * Parse the given file into a new <code>Stylesheet</code>.
+	 *
+	 * @param file
+	 *            the XSL file
+	 * @return the stylesheet, or null if the file is not well-formed XML or
+	 *         no SAX parser is available
+	 * @throws CoreException
+	 *             if the file cannot be read
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static Stylesheet parse(IFile file) throws CoreException,
+			IOException {
+		XSLCorePlugin plugin = XSLCorePlugin.getDefault();
+		if (plugin == null)
+			return null;
+		char[] text = readContents(file);
+		// skip any byte order mark, as the structured document does
+		int start = text.length > 0 && text[0] == '\uFEFF' ? 1 : 0;
+		Stylesheet stylesheet = new Stylesheet(file);
+		StylesheetSAXParser handler = new StylesheetSAXParser(stylesheet,
+				text, start);
+		try {
+			SAXParserFactory factory = plugin.getFactory();
+			SAXParser parser = factory.newSAXParser();
+			XMLReader reader = parser.getXMLReader();
+			reader.setContentHandler(handler);
+			reader.setErrorHandler(handler);
+			reader.setEntityResolver(handler);
+			reader.setDTDHandler(handler);
+			reader.setFeature("http://xml.org/sax/features/namespace-prefixes", true); //$NON-NLS-1$
+			reader.setProperty("http://xml.org/sax/properties/lexical-handler", handler); //$NON-NLS-1$
+			try {
+				reader.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false); //$NON-NLS-1$
+			} catch (SAXNotRecognizedException e) {
+				// entities are resolved to nothing anyway
+			} catch (SAXNotSupportedException e) {
+				// entities are resolved to nothing anyway
+			}
+			InputSource source = new InputSource(new CharArrayReader(text,
+					start, text.length - start));
+			source.setSystemId(file.getLocationURI().toString());
+			reader.parse(source);
+		} catch (SAXParseException e) {
+			return null;
+		} catch (SAXException e) {
+			XSLCorePlugin.log(e);
+			return null;
+		} catch (ParserConfigurationException e) {
+			XSLCorePlugin.log(e);
+			return null;
+		}
+		return stylesheet;
+	}
+
+	private static char[] readContents(IFile file) throws CoreException,
+			IOException {
+		InputStream in = file.getContents(true);
+		try {
+			Reader reader = new InputStreamReader(in, file.getCharset());
+			char[] buf = new char[8192];
+			int len = 0;
+			int n;
+			while ((n = reader.read(buf, len, buf.length - len)) != -1) {
+				len += n;
+				if (len == buf.length) {
+					char[] newBuf = new char[buf.length * 2];
+					System.arraycopy(buf, 0, newBuf, 0, len);
+					buf = newBuf;
+				}
+			}
+			char[] text = new char[len];
+			System.arraycopy(buf, 0, text, 0, len);
+			return text;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static int[] computeLineStarts(char[] text, int start) {
+		// break lines as both the structured document and the SAX locator do
+		List<Integer> starts = new ArrayList<Integer>();
+		starts.add(start);
+		for (int i = start; i < text.length; i++) {
+			char c = text[i];
+			if (c == '\r') {
+				if (i + 1 < text.length && text[i + 1] == '\n')
+					i++;
+				starts.add(i + 1);
+			} else if (c == '\n') {
+				starts.add(i + 1);
+			}
+		}
+		int[] result = new int[starts.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = starts.get(i);
+		}
+		return result;
+	}
+
+	@Override
+	public void setDocumentLocator(Locator locator) {
+		this.locator = locator;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName,
+			Attributes attributes) throws SAXException {
+		Frame parent = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+		if (parent != null) {
+			markContent(parent);
+			if (!parent.hasChildElements) {
+				parent.hasChildElements = true;
+				// the DOM walker makes an element the parent as soon as it
+				// has child elements, and never resets it
+				if (parent.xslEl != null)
+					data.setParentEl(parent.xslEl);
+			}
+		}
+		int end = getLocatorOffset();
+		int start = end - 1;
+		while (start > textStart && text[start] != '<')
+			start--;
+
+		XSLElement xslEl = null;
+		if (XSLCore.XSL_NAMESPACE_URI.equals(uri)) {
+			xslEl = createXSLModelObject(localName, attributes);
+			if (xslEl != null)
+				configure(xslEl, localName, attributes, start, end);
+		}
+		frames.add(new Frame(xslEl, start));
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName)
+			throws SAXException {
+		Frame frame = frames.remove(frames.size() - 1);
+		XSLElement xslEl = frame.xslEl;
+		if (xslEl != null)
+			xslEl.setLength(getLocatorOffset() - frame.start);
+		if (xslEl instanceof CallTemplate)
+			data.getCallTemplates().pop();
+		if (xslEl instanceof Function)
+			data.getFunctions().pop();
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length)
+			throws SAXException {
+		markContent();
+	}
+
+	@Override
+	public void ignorableWhitespace(char[] ch, int start, int length)
+			throws SAXException {
+		markContent();
+	}
+
+	@Override
+	public void processingInstruction(String target, String value)
+			throws SAXException {
+		markContent();
+	}
+
+	public void comment(char[] ch, int start, int length) throws SAXException {
+		if (!inDTD)
+			markContent();
+	}
+
+	public void startCDATA() throws SAXException {
+		markContent();
+	}
+
+	public void endCDATA() throws SAXException {
+	}
+
+	public void startDTD(String name, String publicId, String systemId)
+			throws SAXException {
+		inDTD = true;
+	}
+
+	public void endDTD() throws SAXException {
+		inDTD = false;
+	}
+
+	public void startEntity(String name) throws SAXException {
+	}
+
+	public void endEntity(String name) throws SAXException {
+	}
+
+	/*
+	 * Resolve external entities to an empty string, as the structured model
+	 * does not load them either.
+	 */
+	@Override
+	public InputSource resolveEntity(String publicId, String systemId)
+			throws SAXException {
+		return new InputSource(new StringReader("")); //$NON-NLS-1$
+	}
+
+	@Override
+	public void fatalError(SAXParseException e) throws SAXException {
+		throw e;
+	}
+
+	private void markContent() {
+		if (!frames.isEmpty())
+			markContent(frames.get(frames.size() - 1));
+	}
+
+	private void markContent(Frame frame) {
+		// a parameter has a value if it has any child node at all
+		if (frame.xslEl instanceof Parameter)
+			((Parameter) frame.xslEl).setValue(true);
+	}
+
+	private XSLElement createXSLModelObject(String elName,
+			Attributes attributes) {
+		int elementSize = frames.size();
+		XSLElement xslEl = null;
+		if (elementSize == 0) {
+			if (STYLESHEET.equals(elName)) {
+				String version = attributes.getValue("version"); //$NON-NLS-1$
+				data.getStylesheet().setVersion(version == null ? "" : version); //$NON-NLS-1$
+				xslEl = data.getStylesheet();
+			}
+		} else if (INCLUDE.equals(elName) && elementSize == 1) {
+			Include include = new Include(data.getStylesheet());
+			data.getStylesheet().addInclude(include);
+			xslEl = include;
+		} else if (IMPORT.equals(elName) && elementSize == 1) {
+			Import include = new Import(data.getStylesheet());
+			data.getStylesheet().addImport(include);
+			xslEl = include;
+		} else if (TEMPLATE.equals(elName) && elementSize == 1) {
+			data.setCurrentTemplate(new Template(data.getStylesheet()));
+			data.getStylesheet().addTemplate(data.getCurrentTemplate());
+			xslEl = data.getCurrentTemplate();
+		} else if (PARAM.equals(elName) && notParentStylesheet()) {
+			xslEl = createParameter(elementSize);
+		} else if (CALL_TEMPLATE.equals(elName) && elementSize >= 2) {
+			CallTemplate callTemplate = new CallTemplate(data.getStylesheet());
+			data.getCallTemplates().push(callTemplate);
+			data.getStylesheet().addCalledTemplate(callTemplate);
+			xslEl = callTemplate;
+		} else if (WITH_PARAM.equals(elName) && elementSize >= 3
+				&& data.getCallTemplates().size() > 0) {
+			Parameter param = new Parameter(data.getStylesheet());
+			data.getCallTemplates().peek().addParameter(param);
+			xslEl = param;
+		} else if (VARIABLE.equals(elName) || PARAM.equals(elName)) {
+			if (elementSize == 1) {
+				Variable var = new Variable(data.getStylesheet());
+				data.getStylesheet().addGlobalVariable(var);
+				xslEl = var;
+			} else if (data.getCurrentTemplate() != null) {
+				Variable var = new Variable(data.getStylesheet());
+				data.getCurrentTemplate().addVariable(var);
+				xslEl = var;
+			}
+		} else if (FUNCTION.equals(elName)) {
+			data.setCurrentTemplate(null);
+			Function function = new Function(data.getStylesheet());
+			data.getFunctions().push(function);
+			data.getStylesheet().addFunction(function);
+			xslEl = function;
+		} else {
+			xslEl = new XSLElement(data.getStylesheet());
+		}
+		return xslEl;
+	}
+
+	private XSLElement createParameter(int elementSize) {
+		Parameter param = new Parameter(data.getStylesheet());
+		XSLElement parentEl = data.getParentEl();
+		if (parentEl != null) {
+			if (parentEl.getModelType() == XSLModelObject.Type.FUNCTION) {
+				((Function) parentEl).addParameter(param);
+			} else if (parentEl.getModelType() == XSLModelObject.Type.TEMPLATE
+					&& elementSize == 2 && data.getCurrentTemplate() != null) {
+				((Template) parentEl).addParameter(param);
+			}
+		}
+		return param;
+	}
+
+	private boolean notParentStylesheet() {
+		XSLElement parentElement = data.getParentEl();
+		if (parentElement == null) {
+			return true;
+		}
+		return parentElement.getModelType() != XSLModelObject.Type.STYLESHEET;
+	}
+
+	private void configure(XSLElement element, String localName,
+			Attributes attributes, int start, int end) {
+		setPositionInfo(element, start);
+		element.setName(localName);
+		Map<String, int[]> positions = getAttributePositions(start, end);
+		for (int i = 0; i < attributes.getLength(); i++) {
+			String name = attributes.getQName(i);
+			XSLAttribute xslatt = new XSLAttribute(element, name, attributes
+					.getValue(i));
+			int[] position = positions.get(name);
+			if (position != null) {
+				setPositionInfo(xslatt, position[0]);
+				xslatt.setLength(position[1]);
+			} else {
+				// defaulted from the DTD
+				setPositionInfo(xslatt, start);
+			}
+			element.setAttribute(xslatt);
+		}
+		if (data.getParentEl() != null)
+			data.getParentEl().addChild(element);
+	}
+
+	/**
+	 * Tokenize the start tag between the given offsets to find the offset and
+	 * length of each attribute, from the start of its name to the end of its
+	 * closing quote.
+	 */
+	private Map<String, int[]> getAttributePositions(int start, int end) {
+		Map<String, int[]> positions = new HashMap<String, int[]>();
+		int i = start + 1;
+		while (i < end && !isTagDelimiter(text[i]))
+			i++;
+		while (i < end) {
+			while (i < end && Character.isWhitespace(text[i]))
+				i++;
+			if (i >= end || text[i] == '/' || text[i] == '>')
+				break;
+			int nameStart = i;
+			while (i < end && text[i] != '=' && !isTagDelimiter(text[i]))
+				i++;
+			String name = new String(text, nameStart, i - nameStart);
+			while (i < end && Character.isWhitespace(text[i]))
+				i++;
+			if (i >= end || text[i] != '=')
+				continue;
+			i++;
+			while (i < end && Character.isWhitespace(text[i]))
+				i++;
+			if (i >= end)
+				break;
+			char quote = text[i++];
+			while (i < end && text[i] != quote)
+				i++;
+			if (i < end)
+				i++;
+			positions.put(name, new int[] { nameStart, i - nameStart });
+		}
+		return positions;
+	}
+
+	private static boolean isTagDelimiter(char c) {
+		return Character.isWhitespace(c) || c == '/' || c == '>';
+	}
+
+	private void setPositionInfo(XSLNode node, int offset) {
+		int line = getLineOfOffset(offset);
+		// offsets are relative to the document, which excludes any BOM
+		node.setOffset(offset - textStart);
+		node.setLineNumber(line);
+		node.setColumnNumber(offset - lineStarts[line]);
+	}
+
+	private int getLineOfOffset(int offset) {
+		int low = 0;
+		int high = lineStarts.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (lineStarts[mid] <= offset)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	private int getLocatorOffset() {
+		int line = locator.getLineNumber();
+		int column = locator.getColumnNumber();
+		if (line < 1)
+			return textStart;
+		int offset = lineStarts[Math.min(line, lineStarts.length) - 1]
+				+ Math.max(column, 1) - 1;
+		return Math.min(Math.max(offset, textStart), text.length);
+	}
+
+	private static class Frame {
+		final XSLElement xslEl;
+		final int start;
+		boolean hasChildElements;
+
+		Frame(XSLElement xslEl, int start) {
+			this.xslEl = xslEl;
+			this.start = start;
+		}
+	}
+}
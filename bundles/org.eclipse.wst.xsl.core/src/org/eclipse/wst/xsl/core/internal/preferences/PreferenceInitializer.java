@@ -39,5 +39,8 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer
 		node.putInt(ValidationPreferences.NAME_ATTRIBUTE_MISSING, IMarker.SEVERITY_ERROR);
 		node.putInt(ValidationPreferences.NAME_ATTRIBUTE_EMPTY, IMarker.SEVERITY_ERROR);
 		node.putInt(ValidationPreferences.DUPLICATE_PARAMETER, IMarker.SEVERITY_ERROR);
+		node.putInt(XSLCorePlugin.MODEL_CACHE_SIZE, XSLCorePlugin.DEFAULT_MODEL_CACHE_SIZE);
+		node.putBoolean(XSLCorePlugin.MODEL_CACHE_SOFT_REFERENCES, true);
+		node.putBoolean(XSLCorePlugin.MODEL_INDEX, true);
 	}
 }
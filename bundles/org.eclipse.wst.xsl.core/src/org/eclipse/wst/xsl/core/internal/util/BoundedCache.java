@@ -0,0 +1,374 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe, size-weighted cache with approximately LRU eviction.
+ * <p>
+ * Entries are held strongly until the total weight of the cache exceeds its
+ * limit, at which point entries that have not been used recently are evicted.
+ * If the soft reference tier is enabled, evicted entries are kept softly
+ * reachable so that they can be recovered until the garbage collector reclaims
+ * them.
+ * </p>
+ * <p>
+ * Finding a strongly held entry takes no lock, so that concurrent readers of a
+ * warm cache do not contend. It only marks the entry as used; eviction gives
+ * used entries a second chance, in insertion order, rather than keeping an
+ * exact access order. Misses, updates and eviction are serialized.
+ * </p>
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public class BoundedCache<K, V> {
+	/**
+	 * Computes the weight of a cached value.
+	 *
+	 * @param <V>
+	 *            the value type
+	 */
+	public interface Weigher<V> {
+		/**
+		 * Get the weight of the given value.
+		 *
+		 * @param value
+		 *            the value to weigh
+		 * @return a positive weight
+		 */
+		int weigh(V value);
+	}
+
+	private static final Weigher<Object> SINGLETON_WEIGHER = new Weigher<Object>() {
+		public int weigh(Object value) {
+			return 1;
+		}
+	};
+
+	// the strongly held entries, read without locking
+	private final ConcurrentMap<K, Entry<V>> strong = new ConcurrentHashMap<K, Entry<V>>();
+	// the same entries in insertion order, for eviction
+	private final LinkedHashMap<K, Entry<V>> order = new LinkedHashMap<K, Entry<V>>();
+	private final Map<K, SoftEntry<K, V>> soft = new HashMap<K, SoftEntry<K, V>>();
+	private final ReferenceQueue<V> queue = new ReferenceQueue<V>();
+	private final Weigher<? super V> weigher;
+	private final boolean softReferences;
+	private long maxWeight;
+	private long weight;
+	private final AtomicLong hits = new AtomicLong();
+	private long softHits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Create a cache holding at most <code>maxEntries</code> entries.
+	 *
+	 * @param maxEntries
+	 *            the maximum number of strongly held entries
+	 * @param softReferences
+	 *            <code>true</code> to keep evicted entries softly reachable
+	 */
+	public BoundedCache(long maxEntries, boolean softReferences) {
+		this(maxEntries, SINGLETON_WEIGHER, softReferences);
+	}
+
+	/**
+	 * Create a cache whose strongly held entries weigh at most
+	 * <code>maxWeight</code> in total.
+	 *
+	 * @param maxWeight
+	 *            the maximum total weight of strongly held entries
+	 * @param weigher
+	 *            the weigher used to compute entry weights
+	 * @param softReferences
+	 *            <code>true</code> to keep evicted entries softly reachable
+	 */
+	public BoundedCache(long maxWeight, Weigher<? super V> weigher,
+			boolean softReferences) {
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.softReferences = softReferences;
+	}
+
+	/**
+	 * Get the cached value for the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the cached value, or null if there is none
+	 */
+	public V get(K key) {
+		Entry<V> entry = strong.get(key);
+		if (entry != null) {
+			entry.used = true;
+			hits.incrementAndGet();
+			return entry.value;
+		}
+		return getSlowly(key);
+	}
+
+	private synchronized V getSlowly(K key) {
+		// it may have been added since the first look
+		Entry<V> entry = strong.get(key);
+		if (entry != null) {
+			entry.used = true;
+			hits.incrementAndGet();
+			return entry.value;
+		}
+		if (softReferences) {
+			expungeStaleEntries();
+			SoftEntry<K, V> ref = soft.remove(key);
+			V value = ref == null ? null : ref.get();
+			if (value != null) {
+				softHits++;
+				putStrong(key, value);
+				return value;
+			}
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Add or replace the cached value for the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value to cache
+	 */
+	public synchronized void put(K key, V value) {
+		if (softReferences) {
+			expungeStaleEntries();
+			soft.remove(key);
+		}
+		putStrong(key, value);
+	}
+
+	/**
+	 * Remove the cached value for the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value that was removed, or null
+	 */
+	public synchronized V remove(K key) {
+		V value = null;
+		SoftEntry<K, V> ref = soft.remove(key);
+		if (ref != null)
+			value = ref.get();
+		Entry<V> entry = strong.remove(key);
+		if (entry != null) {
+			order.remove(key);
+			weight -= entry.weight;
+			value = entry.value;
+		}
+		return value;
+	}
+
+	/**
+	 * Remove all entries from this.
+	 */
+	public synchronized void clear() {
+		strong.clear();
+		order.clear();
+		soft.clear();
+		weight = 0;
+		expungeStaleEntries();
+	}
+
+	/**
+	 * Get a snapshot of the keys of all entries, whether strongly or softly
+	 * held.
+	 *
+	 * @return a new list of keys
+	 */
+	public synchronized List<K> keys() {
+		List<K> keys = new ArrayList<K>(order.size() + soft.size());
+		keys.addAll(order.keySet());
+		keys.addAll(soft.keySet());
+		return keys;
+	}
+
+	/**
+	 * Change the maximum total weight of this, evicting entries if necessary.
+	 *
+	 * @param maxWeight
+	 *            the new maximum weight
+	 */
+	public synchronized void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+		evict(null);
+	}
+
+	/**
+	 * Get the number of lookups that found a strongly held entry.
+	 *
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of lookups that recovered an entry from the soft
+	 * reference tier.
+	 *
+	 * @return the soft hit count
+	 */
+	public synchronized long getSoftHitCount() {
+		return softHits;
+	}
+
+	/**
+	 * Get the number of lookups that found nothing.
+	 *
+	 * @return the miss count
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of entries evicted from the strong tier.
+	 *
+	 * @return the eviction count
+	 */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * Get the current total weight of the strongly held entries.
+	 *
+	 * @return the weight
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Get the number of strongly held entries.
+	 *
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return order.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "entries=" + order.size() + ", soft=" + soft.size() + ", weight=" + weight + "/" + maxWeight //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ ", hits=" + hits + ", softHits=" + softHits + ", misses=" + misses + ", evictions=" + evictions; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	private void putStrong(K key, V value) {
+		Entry<V> entry = new Entry<V>(value, Math.max(1, weigher.weigh(value)));
+		// removed first, so that the entry moves to the end of the order
+		Entry<V> old = order.remove(key);
+		if (old != null)
+			weight -= old.weight;
+		order.put(key, entry);
+		strong.put(key, entry);
+		weight += entry.weight;
+		evict(key);
+	}
+
+	private void evict(K added) {
+		// entries used since the last eviction, to be moved to the end
+		List<K> usedKeys = new ArrayList<K>();
+		List<Entry<V>> usedEntries = new ArrayList<Entry<V>>();
+		Iterator<Map.Entry<K, Entry<V>>> iter = order.entrySet().iterator();
+		boolean secondChance = true;
+		// always keep the entry just added, however heavy
+		while (weight > maxWeight && order.size() + usedKeys.size() > 1) {
+			if (!iter.hasNext()) {
+				// every remaining entry was used, so the order decides
+				requeue(usedKeys, usedEntries);
+				iter = order.entrySet().iterator();
+				secondChance = false;
+			}
+			Map.Entry<K, Entry<V>> eldest = iter.next();
+			K key = eldest.getKey();
+			Entry<V> entry = eldest.getValue();
+			if (key.equals(added))
+				continue;
+			iter.remove();
+			if (entry.used && secondChance) {
+				entry.used = false;
+				usedKeys.add(key);
+				usedEntries.add(entry);
+				continue;
+			}
+			strong.remove(key);
+			weight -= entry.weight;
+			evictions++;
+			if (softReferences) {
+				soft.put(key, new SoftEntry<K, V>(key, entry.value, queue));
+			}
+		}
+		requeue(usedKeys, usedEntries);
+	}
+
+	private void requeue(List<K> keys, List<Entry<V>> entries) {
+		for (int i = 0; i < keys.size(); i++) {
+			order.put(keys.get(i), entries.get(i));
+		}
+		keys.clear();
+		entries.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void expungeStaleEntries() {
+		Reference<? extends V> ref;
+		while ((ref = queue.poll()) != null) {
+			SoftEntry<K, V> entry = (SoftEntry<K, V>) ref;
+			if (soft.get(entry.key) == entry)
+				soft.remove(entry.key);
+		}
+	}
+
+	private static class Entry<V> {
+		final V value;
+		final int weight;
+		// set by readers without locking
+		volatile boolean used;
+
+		Entry(V value, int weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	private static class SoftEntry<K, V> extends SoftReference<V> {
+		final K key;
+
+		SoftEntry(K key, V value, ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+	}
+}
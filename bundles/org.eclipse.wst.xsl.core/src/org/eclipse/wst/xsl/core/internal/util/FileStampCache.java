@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+
+/**
+ * A bounded cache of values computed from the contents of workspace files.
+ * Each value is stored with the modification stamp of its file and is only
+ * returned while the stamp is unchanged.
+ * <p>
+ * All instances are registered so that the resource change listener can
+ * drop the entries of changed and deleted files in bulk.
+ * </p>
+ *
+ * @param <V>
+ *            the value type
+ */
+public class FileStampCache<V> {
+	private static final List<FileStampCache<?>> instances = new ArrayList<FileStampCache<?>>();
+
+	private final BoundedCache<IFile, Entry<V>> entries;
+
+	/**
+	 * Create a cache holding at most <code>maxEntries</code> entries.
+	 *
+	 * @param maxEntries
+	 *            the maximum number of entries
+	 */
+	public FileStampCache(long maxEntries) {
+		entries = new BoundedCache<IFile, Entry<V>>(maxEntries, false);
+		synchronized (instances) {
+			instances.add(this);
+		}
+	}
+
+	/**
+	 * Get the value cached for the given file, provided the file has not
+	 * changed since it was cached.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the cached value, or null
+	 */
+	public V get(IFile file) {
+		Entry<V> entry = entries.get(file);
+		if (entry == null)
+			return null;
+		if (entry.stamp != file.getModificationStamp()) {
+			entries.remove(file);
+			return null;
+		}
+		return entry.value;
+	}
+
+	/**
+	 * Cache a value for the given file, as of the given modification stamp.
+	 * Nothing is cached if the file does not exist.
+	 *
+	 * @param file
+	 *            the file
+	 * @param stamp
+	 *            the modification stamp of the file when the value was
+	 *            computed
+	 * @param value
+	 *            the value
+	 */
+	public void put(IFile file, long stamp, V value) {
+		if (stamp != IResource.NULL_STAMP)
+			entries.put(file, new Entry<V>(stamp, value));
+	}
+
+	/**
+	 * Remove the entries of the given files.
+	 *
+	 * @param files
+	 *            the files
+	 */
+	public void removeAll(Collection<IFile> files) {
+		for (IFile file : files) {
+			entries.remove(file);
+		}
+	}
+
+	/**
+	 * Remove all entries from this.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Get the underlying cache, for example to inspect its hit, miss and
+	 * eviction counts.
+	 *
+	 * @return the cache
+	 */
+	public BoundedCache<IFile, ?> getCache() {
+		return entries;
+	}
+
+	/**
+	 * Remove the entries of the given files from every cache.
+	 *
+	 * @param files
+	 *            the changed files
+	 */
+	public static void invalidate(Collection<IFile> files) {
+		List<FileStampCache<?>> caches;
+		synchronized (instances) {
+			caches = new ArrayList<FileStampCache<?>>(instances);
+		}
+		for (FileStampCache<?> cache : caches) {
+			cache.removeAll(files);
+		}
+	}
+
+	private static class Entry<V> {
+		final long stamp;
+		final V value;
+
+		Entry(long stamp, V value) {
+			this.stamp = stamp;
+			this.value = value;
+		}
+	}
+}
@@ -1,9 +1,15 @@
 package org.eclipse.wst.xsl.core.internal.util;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.core.runtime.content.IContentTypeManager;
+import org.eclipse.core.runtime.content.IContentTypeManager.ContentTypeChangeEvent;
+import org.eclipse.core.runtime.content.IContentTypeManager.IContentTypeChangeListener;
 import org.eclipse.wst.xsl.core.XSLCore;
 
 /**
@@ -13,6 +19,13 @@ import org.eclipse.wst.xsl.core.XSLCore;
  *
  */
 public class FileUtil {
+	private static final int XML = 1;
+	private static final int XSL = 2;
+
+	// detection only depends on the file name, so results are cached by name
+	private static final BoundedCache<String, Integer> kinds = new BoundedCache<String, Integer>(
+			10000, false);
+	private static IContentTypeChangeListener contentTypeListener;
 
 	/**
 	 * Determines if a file is one of the valid XML content types.
@@ -21,16 +34,7 @@ public class FileUtil {
 	 */
 	public static boolean isXMLFile(IFile file)
 	{
-		IContentTypeManager contentTypeManager = Platform.getContentTypeManager();
-		IContentType[] types = contentTypeManager.findContentTypesFor(file.getName());
-		for (IContentType contentType : types)
-		{
-			if (contentType.isKindOf(contentTypeManager.getContentType("org.eclipse.core.runtime.xml")) || contentType.isKindOf(contentTypeManager.getContentType("org.eclipse.wst.xml.core.xmlsource"))) //$NON-NLS-1$ //$NON-NLS-2$
-			{
-				return true;
-			}
-		}
-		return false;
+		return (getKind(file) & XML) != 0;
 	}
 
 	/**
@@ -40,17 +44,98 @@ public class FileUtil {
 	 * 
 	 */
 	public static boolean isXSLFile(IFile file)
+	{
+		return (getKind(file) & XSL) != 0;
+	}
+
+	/**
+	 * Select the XSLT files from the given files.
+	 * @param files The input files to check.
+	 * @return The XSLT files, in the order given.
+	 */
+	public static List<IFile> getXSLFiles(Collection<IFile> files)
+	{
+		List<IFile> xslFiles = new ArrayList<IFile>();
+		for (IFile file : files)
+		{
+			if ((getKind(file) & XSL) != 0)
+				xslFiles.add(file);
+		}
+		return xslFiles;
+	}
+
+	/**
+	 * Select the XML files, including XSLT files, from the given files.
+	 * @param files The input files to check.
+	 * @return The XML files, in the order given.
+	 */
+	public static List<IFile> getXMLFiles(Collection<IFile> files)
+	{
+		List<IFile> xmlFiles = new ArrayList<IFile>();
+		for (IFile file : files)
+		{
+			if ((getKind(file) & XML) != 0)
+				xmlFiles.add(file);
+		}
+		return xmlFiles;
+	}
+
+	/**
+	 * Forget the cached results and stop listening for content type changes.
+	 */
+	public static synchronized void dispose()
+	{
+		if (contentTypeListener != null)
+		{
+			Platform.getContentTypeManager().removeContentTypeChangeListener(contentTypeListener);
+			contentTypeListener = null;
+		}
+		kinds.clear();
+	}
+
+	private static int getKind(IFile file)
+	{
+		String name = file.getName();
+		Integer kind = kinds.get(name);
+		if (kind == null)
+		{
+			addListener();
+			kind = computeKind(name);
+			kinds.put(name, kind);
+		}
+		return kind.intValue();
+	}
+
+	private static int computeKind(String name)
 	{
 		IContentTypeManager contentTypeManager = Platform.getContentTypeManager();
-		IContentType[] types = contentTypeManager.findContentTypesFor(file.getName());
-		for (IContentType contentType : types)
+		IContentType xmlType = contentTypeManager.getContentType("org.eclipse.core.runtime.xml"); //$NON-NLS-1$
+		IContentType xmlSourceType = contentTypeManager.getContentType("org.eclipse.wst.xml.core.xmlsource"); //$NON-NLS-1$
+		IContentType xslType = contentTypeManager.getContentType(XSLCore.XSL_CONTENT_TYPE);
+		int kind = 0;
+		for (IContentType contentType : contentTypeManager.findContentTypesFor(name))
 		{
-			if (contentType.equals(contentTypeManager.getContentType(XSLCore.XSL_CONTENT_TYPE)))
-			{
-				return true;
-			}
+			if (contentType.isKindOf(xmlType) || contentType.isKindOf(xmlSourceType))
+				kind |= XML;
+			if (contentType.equals(xslType))
+				kind |= XSL;
 		}
-		return false;
+		return kind;
 	}
 
+	private static synchronized void addListener()
+	{
+		if (contentTypeListener == null)
+		{
+			// file associations may change
+			contentTypeListener = new IContentTypeChangeListener()
+			{
+				public void contentTypeChanged(ContentTypeChangeEvent event)
+				{
+					kinds.clear();
+				}
+			};
+			Platform.getContentTypeManager().addContentTypeChangeListener(contentTypeListener);
+		}
+	}
 }
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.wst.xml.core.internal.XMLCorePlugin;
+import org.eclipse.wst.xml.core.internal.catalog.provisional.ICatalog;
+import org.eclipse.wst.xml.core.internal.catalog.provisional.ICatalogEvent;
+import org.eclipse.wst.xml.core.internal.catalog.provisional.ICatalogListener;
+import org.eclipse.wst.xml.core.internal.catalog.provisional.INextCatalog;
+
+/**
+ * A bounded cache of the files that hrefs resolve to, keyed by the containing
+ * file and the href. Hrefs that do not resolve to a workspace file are cached
+ * as well.
+ * <p>
+ * Resolution depends on where files are rather than on what they contain, so
+ * the cache is cleared when XML files or folders are added, removed or moved,
+ * and when the XML catalog changes. A resolution is only cached if the cache
+ * was not cleared while it was being made, see <code>getGeneration</code>.
+ * </p>
+ */
+public class ResolvedFileCache {
+	/**
+	 * Returned by <code>get</code> for an href that is cached as not resolving
+	 * to a file. Compared by identity.
+	 */
+	public static final Object UNRESOLVED = new Object();
+
+	private static final BoundedCache<List<Object>, Object> files = new BoundedCache<List<Object>, Object>(
+			10000, false);
+	private static List<ICatalog> catalogs;
+	private static volatile int generation;
+	private static final ICatalogListener catalogListener = new ICatalogListener() {
+		public void catalogChanged(ICatalogEvent event) {
+			clear();
+		}
+	};
+
+	private ResolvedFileCache() {
+	}
+
+	/**
+	 * Get the file that the given href was found to resolve to, in a single
+	 * lookup.
+	 *
+	 * @param currentFile
+	 *            the file containing the href
+	 * @param href
+	 *            the href
+	 * @return the resolved <code>IFile</code>, <code>UNRESOLVED</code> if the
+	 *         href was found not to resolve to a file, or null if it was not
+	 *         cached
+	 */
+	public static Object get(IFile currentFile, String href) {
+		return files.get(Arrays.<Object> asList(currentFile, href));
+	}
+
+	/**
+	 * Get the number of times the cache has been cleared. Read this before
+	 * resolving an href and pass it to <code>put</code>, so that a resolution
+	 * made before a change to the workspace or catalog is not cached after it.
+	 *
+	 * @return the current generation
+	 */
+	public static int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Cache the file that the given href resolves to, unless the cache has
+	 * been cleared since the given generation.
+	 *
+	 * @param currentFile
+	 *            the file containing the href
+	 * @param href
+	 *            the href
+	 * @param file
+	 *            the resolved file, or null if the href does not resolve to a
+	 *            file
+	 * @param resolvedGeneration
+	 *            the generation read before the href was resolved
+	 */
+	public static void put(IFile currentFile, String href, IFile file,
+			int resolvedGeneration) {
+		addListeners();
+		// checked under the lock that clear bumps the generation under
+		synchronized (files) {
+			if (resolvedGeneration != generation)
+				return;
+			files.put(Arrays.<Object> asList(currentFile, href),
+					file == null ? UNRESOLVED : file);
+		}
+	}
+
+	/**
+	 * Forget all cached resolutions.
+	 */
+	public static void clear() {
+		synchronized (files) {
+			generation++;
+			files.clear();
+		}
+	}
+
+	/**
+	 * Get the underlying cache, for example to inspect its hit, miss and
+	 * eviction counts.
+	 *
+	 * @return the cache
+	 */
+	public static BoundedCache<List<Object>, ?> getCache() {
+		return files;
+	}
+
+	/**
+	 * Forget the cached resolutions and stop listening for catalog changes.
+	 */
+	public static synchronized void dispose() {
+		if (catalogs != null) {
+			for (ICatalog catalog : catalogs) {
+				catalog.removeListener(catalogListener);
+			}
+			catalogs = null;
+		}
+		clear();
+	}
+
+	private static synchronized void addListeners() {
+		if (catalogs != null)
+			return;
+		catalogs = new ArrayList<ICatalog>();
+		XMLCorePlugin xmlCore = XMLCorePlugin.getDefault();
+		if (xmlCore == null)
+			return;
+		// the user and system catalogs notify their own listeners
+		ICatalog catalog = xmlCore.getDefaultXMLCatalog();
+		if (catalog != null) {
+			catalogs.add(catalog);
+			INextCatalog[] nextCatalogs = catalog.getNextCatalogs();
+			for (int i = 0; i < nextCatalogs.length; i++) {
+				ICatalog nextCatalog = nextCatalogs[i].getReferencedCatalog();
+				if (nextCatalog != null)
+					catalogs.add(nextCatalog);
+			}
+		}
+		for (ICatalog listened : catalogs) {
+			listened.addListener(catalogListener);
+		}
+	}
+}
@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A lightweight scanner that reads the prolog and the root element start tag
+ * of an XML document directly from its bytes, to find the root element's
+ * namespace, local name and <code>version</code> attribute without creating
+ * an XML parser.
+ * <p>
+ * Only the first few kilobytes are read, into a buffer that is reused by each
+ * thread. Byte order marks, UTF-8, UTF-16 and other ASCII compatible
+ * encodings, the XML declaration, comments, processing instructions and a
+ * document type declaration without an internal subset are understood.
+ * Anything else - an internal subset, entity references in the relevant
+ * attributes, an undeclared prefix, or a start tag that does not fit in the
+ * buffer - is reported as ambiguous, and the caller should fall back to a
+ * real XML parser.
+ * </p>
+ */
+public final class XMLRootScanner {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int FOUND = 0;
+	private static final int AMBIGUOUS = 1;
+	private static final int NEED_MORE = 2;
+
+	private static final ThreadLocal<XMLRootScanner> instances = new ThreadLocal<XMLRootScanner>() {
+		@Override
+		protected XMLRootScanner initialValue() {
+			return new XMLRootScanner();
+		}
+	};
+
+	private final byte[] buf = new byte[BUFFER_SIZE];
+	private int len;
+	private int start;
+	private int width;
+	private boolean bigEndian;
+
+	private String localName;
+	private String namespace;
+	private String version;
+
+	private XMLRootScanner() {
+	}
+
+	/**
+	 * Get the scanner for the current thread.
+	 *
+	 * @return the scanner
+	 */
+	public static XMLRootScanner getInstance() {
+		return instances.get();
+	}
+
+	/**
+	 * Scan the start of the given stream. The stream is not closed.
+	 *
+	 * @param in
+	 *            the stream of the document's bytes
+	 * @return <code>true</code> if the root element was found, or
+	 *         <code>false</code> if the document could not be understood, in
+	 *         which case the bytes consumed are available from
+	 *         <code>getConsumedBytes</code>
+	 * @throws IOException
+	 *             if the stream cannot be read
+	 */
+	public boolean scan(InputStream in) throws IOException {
+		len = 0;
+		localName = null;
+		namespace = null;
+		version = null;
+		while (true) {
+			int n = in.read(buf, len, buf.length - len);
+			if (n > 0)
+				len += n;
+			int result = parse();
+			if (result == FOUND)
+				return true;
+			if (result == AMBIGUOUS || n == -1 || len == buf.length) {
+				localName = null;
+				namespace = null;
+				version = null;
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Get a copy of the bytes consumed by the last scan.
+	 *
+	 * @return the consumed bytes
+	 */
+	public byte[] getConsumedBytes() {
+		byte[] bytes = new byte[len];
+		System.arraycopy(buf, 0, bytes, 0, len);
+		return bytes;
+	}
+
+	/**
+	 * Get the local name of the root element found by the last scan.
+	 *
+	 * @return the local name
+	 */
+	public String getLocalName() {
+		return localName;
+	}
+
+	/**
+	 * Get the namespace URI of the root element found by the last scan.
+	 *
+	 * @return the namespace URI, or null if it has none
+	 */
+	public String getNamespace() {
+		return namespace;
+	}
+
+	/**
+	 * Get the value of the <code>version</code> attribute of the root element
+	 * found by the last scan.
+	 *
+	 * @return the version, or null if there is no such attribute
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	private int parse() {
+		if (!detectEncoding())
+			return len < 4 ? NEED_MORE : AMBIGUOUS;
+		int u = 0;
+		while (true) {
+			u = skipWhitespace(u);
+			int c = at(u);
+			if (c == -1)
+				return NEED_MORE;
+			if (c != '<')
+				return AMBIGUOUS;
+			int c1 = at(u + 1);
+			if (c1 == -1)
+				return NEED_MORE;
+			if (c1 == '?') {
+				int end = indexOf(u + 2, "?>"); //$NON-NLS-1$
+				if (end == -1)
+					return NEED_MORE;
+				if (u == 0 && startsWith(2, "xml") && isWhitespace(at(5)) //$NON-NLS-1$
+						&& !checkDeclaredEncoding(5, end))
+					return AMBIGUOUS;
+				u = end + 2;
+			} else if (c1 == '!') {
+				if (startsWith(u + 2, "--")) { //$NON-NLS-1$
+					int end = indexOf(u + 4, "-->"); //$NON-NLS-1$
+					if (end == -1)
+						return NEED_MORE;
+					u = end + 3;
+				} else if (startsWith(u + 2, "DOCTYPE")) { //$NON-NLS-1$
+					int end = skipDoctype(u + 9);
+					if (end < 0)
+						return -end;
+					u = end;
+				} else {
+					return at(u + 8) == -1 ? NEED_MORE : AMBIGUOUS;
+				}
+			} else if (isNameChar(c1)) {
+				return parseRootElement(u + 1);
+			} else {
+				return AMBIGUOUS;
+			}
+		}
+	}
+
+	private boolean detectEncoding() {
+		if (len < 4)
+			return false;
+		int b0 = buf[0] & 0xFF;
+		int b1 = buf[1] & 0xFF;
+		int b2 = buf[2] & 0xFF;
+		int b3 = buf[3] & 0xFF;
+		width = 1;
+		start = 0;
+		if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+			start = 3;
+		} else if (b0 == 0xFE && b1 == 0xFF) {
+			width = 2;
+			bigEndian = true;
+			start = 2;
+		} else if (b0 == 0xFF && b1 == 0xFE) {
+			if (b2 == 0 && b3 == 0)
+				return false; // UTF-32
+			width = 2;
+			bigEndian = false;
+			start = 2;
+		} else if (b0 == 0 && b1 == '<' && b2 == 0 && b3 == '?') {
+			width = 2;
+			bigEndian = true;
+		} else if (b0 == '<' && b1 == 0 && b2 == '?' && b3 == 0) {
+			width = 2;
+			bigEndian = false;
+		} else if (b0 != '<' && !isWhitespace(b0)) {
+			// UTF-32, EBCDIC or not XML at all
+			return false;
+		}
+		return true;
+	}
+
+	private boolean checkDeclaredEncoding(int u, int end) {
+		int index = indexOf(u, "encoding"); //$NON-NLS-1$
+		if (index == -1 || index > end)
+			return true;
+		u = skipWhitespace(index + 8);
+		if (at(u) != '=')
+			return false;
+		u = skipWhitespace(u + 1);
+		int quote = at(u);
+		if (quote != '"' && quote != '\'')
+			return false;
+		u++;
+		// a single byte scan is wrong for encodings that are not ASCII
+		// compatible
+		if (width == 1
+				&& (startsWithIgnoreCase(u, "UTF-16") //$NON-NLS-1$
+						|| startsWithIgnoreCase(u, "UTF-32") //$NON-NLS-1$
+						|| startsWithIgnoreCase(u, "UCS") //$NON-NLS-1$
+						|| startsWithIgnoreCase(u, "ISO-10646-UCS"))) //$NON-NLS-1$
+			return false;
+		return true;
+	}
+
+	private int skipDoctype(int u) {
+		// returns the index after the declaration, or minus the result
+		int quote = 0;
+		while (true) {
+			int c = at(u);
+			if (c == -1)
+				return -NEED_MORE;
+			if (quote != 0) {
+				if (c == quote)
+					quote = 0;
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == '[') {
+				// an internal subset may declare default attributes
+				return -AMBIGUOUS;
+			} else if (c == '>') {
+				return u + 1;
+			}
+			u++;
+		}
+	}
+
+	private int parseRootElement(int u) {
+		int nameStart = u;
+		int colon = -1;
+		int c;
+		while (isNameChar(c = at(u))) {
+			if (c >= 0x80)
+				return AMBIGUOUS; // would need decoding
+			if (c == ':' && colon == -1)
+				colon = u;
+			u++;
+		}
+		if (c == -1)
+			return NEED_MORE;
+		boolean prefixed = colon != -1;
+		String prefix = null;
+		if (prefixed) {
+			prefix = substring(nameStart, colon);
+			localName = substring(colon + 1, u);
+		} else {
+			localName = substring(nameStart, u);
+		}
+		String uri = null;
+		boolean declared = !prefixed;
+		while (true) {
+			int afterName = u;
+			u = skipWhitespace(u);
+			c = at(u);
+			if (c == -1)
+				return NEED_MORE;
+			if (c == '>' || c == '/') {
+				if (c == '/' && at(u + 1) == -1)
+					return NEED_MORE;
+				if (c == '/' && at(u + 1) != '>')
+					return AMBIGUOUS;
+				break;
+			}
+			if (u == afterName || !isNameChar(c))
+				return AMBIGUOUS;
+			int attStart = u;
+			while (isNameChar(at(u)))
+				u++;
+			int attEnd = u;
+			u = skipWhitespace(u);
+			c = at(u);
+			if (c == -1)
+				return NEED_MORE;
+			if (c != '=')
+				return AMBIGUOUS;
+			u = skipWhitespace(u + 1);
+			int quote = at(u);
+			if (quote == -1)
+				return NEED_MORE;
+			if (quote != '"' && quote != '\'')
+				return AMBIGUOUS;
+			int valueStart = u + 1;
+			u = valueStart;
+			while (at(u) != quote) {
+				if (at(u) == -1)
+					return NEED_MORE;
+				u++;
+			}
+			int valueEnd = u;
+			u++;
+
+			if (equals(attStart, attEnd, "version")) { //$NON-NLS-1$
+				version = getValue(valueStart, valueEnd);
+				if (version == null)
+					return AMBIGUOUS;
+			} else if (!prefixed && equals(attStart, attEnd, "xmlns")) { //$NON-NLS-1$
+				uri = getValue(valueStart, valueEnd);
+				if (uri == null)
+					return AMBIGUOUS;
+			} else if (prefixed && attEnd - attStart == 6 + prefix.length()
+					&& startsWith(attStart, "xmlns:") //$NON-NLS-1$
+					&& equals(attStart + 6, attEnd, prefix)) {
+				uri = getValue(valueStart, valueEnd);
+				if (uri == null)
+					return AMBIGUOUS;
+				declared = true;
+			}
+		}
+		if (!declared)
+			return AMBIGUOUS;
+		namespace = uri == null || uri.length() == 0 ? null : uri;
+		return FOUND;
+	}
+
+	/**
+	 * Get an attribute value, or null if it cannot be read without a parser.
+	 */
+	private String getValue(int from, int to) {
+		for (int u = from; u < to; u++) {
+			int c = at(u);
+			if (c == '&' || c == '<' || c >= 0x80 || c < 0x20)
+				return null;
+		}
+		return substring(from, to);
+	}
+
+	private int at(int u) {
+		int b = start + u * width;
+		if (u < 0 || b + width > len)
+			return -1;
+		if (width == 1)
+			return buf[b] & 0xFF;
+		int hi = bigEndian ? buf[b] : buf[b + 1];
+		int lo = bigEndian ? buf[b + 1] : buf[b];
+		return ((hi & 0xFF) << 8) | (lo & 0xFF);
+	}
+
+	private int skipWhitespace(int u) {
+		while (isWhitespace(at(u)))
+			u++;
+		return u;
+	}
+
+	private int indexOf(int u, String s) {
+		while (at(u + s.length() - 1) != -1) {
+			if (startsWith(u, s))
+				return u;
+			u++;
+		}
+		return -1;
+	}
+
+	private boolean startsWith(int u, String s) {
+		for (int i = 0; i < s.length(); i++) {
+			if (at(u + i) != s.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean startsWithIgnoreCase(int u, String s) {
+		for (int i = 0; i < s.length(); i++) {
+			int c = at(u + i);
+			if (c == -1 || Character.toUpperCase((char) c) != s.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean equals(int from, int to, String s) {
+		return to - from == s.length() && startsWith(from, s);
+	}
+
+	private String substring(int from, int to) {
+		char[] chars = new char[to - from];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) at(from + i);
+		}
+		return new String(chars);
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private static boolean isNameChar(int c) {
+		// any non-ASCII code unit may be part of a name
+		return c >= 0x80 || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z'
+				|| c >= '0' && c <= '9' || c == '_' || c == ':' || c == '-'
+				|| c == '.';
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.validation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ProjectScope;
+import org.eclipse.core.runtime.Preferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+import org.eclipse.wst.sse.core.internal.validate.ValidationMessage;
+import org.eclipse.wst.xsl.core.ValidationPreferences;
+import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+
+/**
+ * An immutable snapshot of the validation preferences that apply to a
+ * project, resolved once rather than on every marker.
+ * <p>
+ * Snapshots are cached per project and discarded when the workspace or
+ * project preferences change, so a validation run always sees a consistent
+ * set of values. A project's snapshot and listener are also discarded when
+ * the project is closed or deleted (see <code>forget</code>).
+ * </p>
+ */
+public final class ValidationPreferenceSnapshot {
+	private static final String[] KEYS = { ValidationPreferences.MAX_ERRORS,
+			ValidationPreferences.MISSING_PARAM, ValidationPreferences.XPATHS,
+			ValidationPreferences.CALL_TEMPLATES,
+			ValidationPreferences.EMPTY_PARAM,
+			ValidationPreferences.MISSING_INCLUDE,
+			ValidationPreferences.CIRCULAR_REF,
+			ValidationPreferences.TEMPLATE_CONFLICT,
+			ValidationPreferences.NAME_ATTRIBUTE_MISSING,
+			ValidationPreferences.NAME_ATTRIBUTE_EMPTY,
+			ValidationPreferences.DUPLICATE_PARAMETER };
+
+	private static final ConcurrentMap<Object, ValidationPreferenceSnapshot> snapshots = new ConcurrentHashMap<Object, ValidationPreferenceSnapshot>();
+	private static final ConcurrentMap<IProject, ProjectListener> projectListeners = new ConcurrentHashMap<IProject, ProjectListener>();
+	// the key of the snapshot used when there is no project
+	private static final Object WORKSPACE = new Object();
+	// incremented on every change, to detect snapshots created concurrently
+	private static final AtomicInteger generation = new AtomicInteger();
+	private static IEclipsePreferences instanceNode;
+
+	private static final IPreferenceChangeListener instanceListener = new IPreferenceChangeListener() {
+		public void preferenceChange(PreferenceChangeEvent event) {
+			// projects that do not use their own settings follow these
+			generation.incrementAndGet();
+			snapshots.clear();
+		}
+	};
+
+	private final Map<String, Integer> values;
+
+	private ValidationPreferenceSnapshot(Map<String, Integer> values) {
+		this.values = values;
+	}
+
+	/**
+	 * Get the value of the given preference.
+	 *
+	 * @param key
+	 *            one of the <code>ValidationPreferences</code> keys
+	 * @return the value
+	 */
+	public int get(String key) {
+		Integer value = values.get(key);
+		return value == null ? 0 : value.intValue();
+	}
+
+	/**
+	 * Get the snapshot of the preferences that apply to the given project.
+	 *
+	 * @param project
+	 *            the project, or null for the workspace preferences
+	 * @return the snapshot
+	 */
+	public static ValidationPreferenceSnapshot get(IProject project) {
+		Object key = project == null ? WORKSPACE : project;
+		ValidationPreferenceSnapshot snapshot = snapshots.get(key);
+		if (snapshot == null) {
+			addListeners(project);
+			int created = generation.get();
+			snapshot = create(project);
+			snapshots.putIfAbsent(key, snapshot);
+			// if the preferences changed meanwhile, this snapshot may be stale,
+			// so only the current run uses it
+			if (generation.get() != created)
+				snapshots.remove(key, snapshot);
+		}
+		return snapshot;
+	}
+
+	private static ValidationPreferenceSnapshot create(IProject project) {
+		Preferences pluginPrefs = XSLCorePlugin.getDefault()
+				.getPluginPreferences();
+		// resolved each time, as the node is removed when the project is
+		// closed or deleted
+		IEclipsePreferences prefs = project == null ? null : new ProjectScope(
+				project).getNode(XSLCorePlugin.PLUGIN_ID);
+		boolean useProject = prefs != null
+				&& prefs.getBoolean(XSLCorePlugin.USE_PROJECT_SETTINGS, false);
+		Map<String, Integer> values = new HashMap<String, Integer>();
+		for (String key : KEYS) {
+			int value;
+			if (useProject)
+				value = prefs.getInt(key, ValidationMessage.WARNING);
+			else
+				value = pluginPrefs.getInt(key);
+			values.put(key, value);
+		}
+		return new ValidationPreferenceSnapshot(values);
+	}
+
+	private static synchronized void addListeners(IProject project) {
+		if (instanceNode == null) {
+			instanceNode = new InstanceScope()
+					.getNode(XSLCorePlugin.PLUGIN_ID);
+			instanceNode.addPreferenceChangeListener(instanceListener);
+		}
+		if (project != null && !projectListeners.containsKey(project)) {
+			ProjectListener listener = new ProjectListener(project);
+			listener.node.addPreferenceChangeListener(listener);
+			projectListeners.put(project, listener);
+		}
+	}
+
+	/**
+	 * Discard the snapshot of the given project and stop listening for changes
+	 * to its preferences, for example because it is being closed or deleted.
+	 * Listening starts again the next time the project's snapshot is asked
+	 * for.
+	 *
+	 * @param project
+	 *            the project
+	 */
+	public static synchronized void forget(IProject project) {
+		ProjectListener listener = projectListeners.remove(project);
+		if (listener != null) {
+			try {
+				listener.node.removePreferenceChangeListener(listener);
+			} catch (IllegalStateException e) {
+				// the node has already been removed
+			}
+		}
+		generation.incrementAndGet();
+		snapshots.remove(project);
+	}
+
+	/**
+	 * Discard all snapshots and stop listening for preference changes.
+	 */
+	public static synchronized void dispose() {
+		if (instanceNode != null) {
+			instanceNode.removePreferenceChangeListener(instanceListener);
+			instanceNode = null;
+		}
+		for (ProjectListener listener : projectListeners.values()) {
+			try {
+				listener.node.removePreferenceChangeListener(listener);
+			} catch (IllegalStateException e) {
+				// the project has been deleted
+			}
+		}
+		projectListeners.clear();
+		snapshots.clear();
+	}
+
+	private static class ProjectListener implements IPreferenceChangeListener {
+		final IProject project;
+		final IEclipsePreferences node;
+
+		ProjectListener(IProject project) {
+			this.project = project;
+			this.node = new ProjectScope(project)
+					.getNode(XSLCorePlugin.PLUGIN_ID);
+		}
+
+		public void preferenceChange(PreferenceChangeEvent event) {
+			generation.incrementAndGet();
+			snapshots.remove(project);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.validation;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.xpath.XPathExpressionException;
+
+import org.eclipse.wst.xml.xpath.core.util.XPath20Helper;
+import org.eclipse.wst.xml.xpath.core.util.XSLTXPathHelper;
+import org.eclipse.wst.xsl.core.internal.util.BoundedCache;
+
+/**
+ * A shared cache of the results of compiling XPath expressions, so that
+ * unchanged expressions are not recompiled on every validation. Only whether
+ * an expression compiles, and if not the reason why, is kept.
+ * <p>
+ * This is safe for use by concurrent validations.
+ * </p>
+ */
+public class XPathCache {
+	private static final String XSLT2_VERSION = "2.0"; //$NON-NLS-1$
+	private static final String XSLT1_VERSION = "1.0"; //$NON-NLS-1$
+	private static final int MAX_ENTRIES = 10000;
+	// compared by identity, so it cannot clash with an error message
+	private static final String VALID = new String();
+	private static XPathCache instance;
+
+	private final BoundedCache<List<String>, String> results = new BoundedCache<List<String>, String>(
+			MAX_ENTRIES, false);
+
+	private XPathCache() {
+	}
+
+	/**
+	 * Compile the given expression, or get the result of compiling it
+	 * previously.
+	 *
+	 * @param xslVersion
+	 *            the XSLT version of the stylesheet containing the expression
+	 * @param expression
+	 *            the XPath expression
+	 * @return null if the expression compiles, otherwise the reason it does
+	 *         not
+	 */
+	public String compile(String xslVersion, String expression) {
+		String version = XSLT2_VERSION.equals(xslVersion) ? XSLT2_VERSION
+				: XSLT1_VERSION;
+		List<String> key = Arrays.asList(version, expression);
+		String result = results.get(key);
+		if (result == null) {
+			// compile outside the lock; at worst two threads both compile
+			result = doCompile(version, expression);
+			results.put(key, result);
+		}
+		return result == VALID ? null : result;
+	}
+
+	private static String doCompile(String version, String expression) {
+		try {
+			if (XSLT2_VERSION.equals(version)) {
+				XPath20Helper.compile(expression);
+			} else {
+				XSLTXPathHelper.compile(expression);
+			}
+		} catch (XPathExpressionException e) {
+			String message = e.getMessage();
+			return message == null || message.length() == 0 ? e.toString()
+					: message;
+		} catch (NullPointerException e) {
+			// not sure why NPE is being thrown here
+		}
+		return VALID;
+	}
+
+	/**
+	 * Get the fraction of lookups that were answered from the cache.
+	 *
+	 * @return the hit rate, between 0 and 1
+	 */
+	public double getHitRate() {
+		long hits = results.getHitCount();
+		long total = hits + results.getMissCount();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Get the underlying cache, for example to inspect its hit, miss and
+	 * eviction counts.
+	 *
+	 * @return the cache of compilation results
+	 */
+	public BoundedCache<List<String>, String> getCache() {
+		return results;
+	}
+
+	/**
+	 * Get the singleton <code>XPathCache</code> instance.
+	 *
+	 * @return the <code>XPathCache</code> instance
+	 */
+	public static synchronized XPathCache getInstance() {
+		if (instance == null)
+			instance = new XPathCache();
+		return instance;
+	}
+}
@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.xsl.core.XSLCore;
+import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+import org.eclipse.wst.xsl.core.internal.model.StylesheetBuilder;
+import org.eclipse.wst.xsl.core.model.Include;
+import org.eclipse.wst.xsl.core.model.Stylesheet;
+
+/**
+ * Validates a batch of XSL files on a pool of worker threads.
+ * <p>
+ * The work is done in three phases: every file is reparsed; the models are
+ * then fixed level by level, so that each file is fixed only after the files
+ * it includes or imports; finally every file is validated against its now
+ * cached model. Each phase is fully parallel, and a stylesheet shared by many
+ * others is parsed and fixed exactly once.
+ * </p>
+ */
+public class XSLBatchValidator {
+	private final int threads;
+
+	/**
+	 * Create a new instance of this.
+	 *
+	 * @param threads
+	 *            the number of worker threads to use
+	 */
+	public XSLBatchValidator(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Validate the given XSL files.
+	 *
+	 * @param xslFiles
+	 *            the XSL files
+	 * @param monitor
+	 *            a progress monitor, or null
+	 * @return the validation reports, keyed by file in the order given
+	 * @throws CoreException
+	 *             if any exception occurs while validating
+	 * @throws OperationCanceledException
+	 *             if the monitor is cancelled
+	 */
+	public Map<IFile, XSLValidationReport> validate(Collection<IFile> xslFiles,
+			IProgressMonitor monitor) throws CoreException {
+		if (monitor == null)
+			monitor = new NullProgressMonitor();
+		Set<IFile> files = new LinkedHashSet<IFile>(xslFiles);
+		monitor.beginTask("", files.size() * 3); //$NON-NLS-1$
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new WorkerThreadFactory());
+		try {
+			Map<IFile, Stylesheet> parsed = new HashMap<IFile, Stylesheet>();
+			List<Callable<Stylesheet>> parses = new ArrayList<Callable<Stylesheet>>();
+			for (final IFile file : files) {
+				parses.add(new Callable<Stylesheet>() {
+					public Stylesheet call() throws Exception {
+						return StylesheetBuilder.getInstance().getStylesheet(
+								file, true);
+					}
+				});
+			}
+			List<Stylesheet> stylesheets = runAll(executor, parses, monitor);
+			int i = 0;
+			for (IFile file : files) {
+				parsed.put(file, stylesheets.get(i++));
+			}
+
+			for (List<IFile> level : getLevels(files, parsed)) {
+				List<Callable<Object>> fixes = new ArrayList<Callable<Object>>();
+				for (final IFile file : level) {
+					fixes.add(new Callable<Object>() {
+						public Object call() throws Exception {
+							return XSLCore.getInstance().fixStylesheet(file);
+						}
+					});
+				}
+				runAll(executor, fixes, monitor);
+			}
+
+			List<Callable<XSLValidationReport>> validations = new ArrayList<Callable<XSLValidationReport>>();
+			for (final IFile file : files) {
+				validations.add(new Callable<XSLValidationReport>() {
+					public XSLValidationReport call() throws Exception {
+						XSLValidationReport report = new XSLValidationReport(
+								file.getLocationURI().toString());
+						XSLValidator.getInstance().validate(file, report, false);
+						return report;
+					}
+				});
+			}
+			List<XSLValidationReport> reports = runAll(executor, validations,
+					monitor);
+			Map<IFile, XSLValidationReport> result = new LinkedHashMap<IFile, XSLValidationReport>();
+			i = 0;
+			for (IFile file : files) {
+				result.put(file, reports.get(i++));
+			}
+			return result;
+		} finally {
+			executor.shutdownNow();
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Group the files into levels, where each file depends only on files in
+	 * earlier levels. Files that are part of, or depend on, an include cycle
+	 * are placed together in a final level.
+	 */
+	private static List<List<IFile>> getLevels(Set<IFile> files,
+			Map<IFile, Stylesheet> parsed) {
+		Map<IFile, Integer> pending = new HashMap<IFile, Integer>();
+		Map<IFile, List<IFile>> dependents = new HashMap<IFile, List<IFile>>();
+		for (IFile file : files) {
+			Set<IFile> dependencies = new HashSet<IFile>();
+			Stylesheet stylesheet = parsed.get(file);
+			if (stylesheet != null) {
+				addDependencies(stylesheet.getIncludes(), files, dependencies);
+				addDependencies(stylesheet.getImports(), files, dependencies);
+			}
+			dependencies.remove(file);
+			pending.put(file, dependencies.size());
+			for (IFile dependency : dependencies) {
+				List<IFile> list = dependents.get(dependency);
+				if (list == null) {
+					list = new ArrayList<IFile>();
+					dependents.put(dependency, list);
+				}
+				list.add(file);
+			}
+		}
+
+		List<List<IFile>> levels = new ArrayList<List<IFile>>();
+		List<IFile> level = new ArrayList<IFile>();
+		for (IFile file : files) {
+			if (pending.get(file) == 0)
+				level.add(file);
+		}
+		int remaining = files.size();
+		while (!level.isEmpty()) {
+			levels.add(level);
+			remaining -= level.size();
+			List<IFile> next = new ArrayList<IFile>();
+			for (IFile file : level) {
+				List<IFile> list = dependents.get(file);
+				if (list == null)
+					continue;
+				for (IFile dependent : list) {
+					int count = pending.get(dependent) - 1;
+					pending.put(dependent, count);
+					if (count == 0)
+						next.add(dependent);
+				}
+			}
+			level = next;
+		}
+		if (remaining > 0) {
+			List<IFile> cyclic = new ArrayList<IFile>(remaining);
+			for (IFile file : files) {
+				if (pending.get(file) > 0)
+					cyclic.add(file);
+			}
+			levels.add(cyclic);
+		}
+		return levels;
+	}
+
+	private static void addDependencies(List<? extends Include> includes,
+			Set<IFile> files, Set<IFile> dependencies) {
+		for (Include include : includes) {
+			IFile file = include.getHrefAsFile();
+			if (file != null && files.contains(file))
+				dependencies.add(file);
+		}
+	}
+
+	private static <T> List<T> runAll(ExecutorService executor,
+			List<? extends Callable<T>> tasks, IProgressMonitor monitor)
+			throws CoreException {
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for (Callable<T> task : tasks) {
+			futures.add(executor.submit(task));
+		}
+		List<T> results = new ArrayList<T>(futures.size());
+		boolean interrupted = false;
+		try {
+			for (Future<T> future : futures) {
+				while (true) {
+					if (monitor.isCanceled()) {
+						for (Future<T> f : futures) {
+							f.cancel(true);
+						}
+						throw new OperationCanceledException();
+					}
+					try {
+						results.add(future.get());
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof CoreException)
+							throw (CoreException) cause;
+						if (cause instanceof RuntimeException)
+							throw (RuntimeException) cause;
+						if (cause instanceof Error)
+							throw (Error) cause;
+						throw new CoreException(new Status(IStatus.ERROR,
+								XSLCorePlugin.PLUGIN_ID, cause.getMessage(),
+								cause));
+					}
+				}
+				monitor.worked(1);
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+		return results;
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+		private static final AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "XSL Validation Worker-" + count.incrementAndGet()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -17,28 +17,22 @@ package org.eclipse.wst.xsl.core.internal.validation;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import javax.xml.xpath.XPathExpressionException;
-
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
-import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.ProjectScope;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.wst.common.uriresolver.internal.provisional.URIResolverPlugin;
-import org.eclipse.wst.sse.core.internal.validate.ValidationMessage;
 import org.eclipse.wst.xml.core.internal.validation.core.ValidationReport;
-import org.eclipse.wst.xml.xpath.core.util.XPath20Helper;
-import org.eclipse.wst.xml.xpath.core.util.XSLTXPathHelper;
 import org.eclipse.wst.xsl.core.ValidationPreferences;
 import org.eclipse.wst.xsl.core.XSLCore;
 import org.eclipse.wst.xsl.core.internal.Messages;
-import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
 import org.eclipse.wst.xsl.core.internal.util.Debug;
 import org.eclipse.wst.xsl.core.model.CallTemplate;
 import org.eclipse.wst.xsl.core.model.Function;
@@ -53,15 +47,22 @@ import org.eclipse.wst.xsl.core.model.XSLNode;
 
 /**
  * The XSL validator for workspace XSL files.
+ * <p>
+ * The validator is re-entrant: the state of each validation is held by a
+ * separate instance, so the singleton may be used by several threads at once.
+ * </p>
  * 
  * @author Doug Satchwell
  */
 public class XSLValidator {
 	private static final String XSLT2_Version = "2.0"; //$NON-NLS-1$
 	private static XSLValidator instance;
-	private IProject project;
+	private final ValidationPreferenceSnapshot preferences;
+	private int maxErrors;
+	private int markerCount;
 
-	private XSLValidator() {
+	private XSLValidator(ValidationPreferenceSnapshot preferences) {
+		this.preferences = preferences;
 	}
 
 	/**
@@ -81,11 +82,30 @@ public class XSLValidator {
 			throws CoreException {
 		XSLValidationReport report = new XSLValidationReport(xslFile
 				.getLocationURI().toString());
-		project = xslFile.getProject();
 		validate(xslFile, report, forceBuild);
 		return report;
 	}
 
+	/**
+	 * Validate the given XSL files in parallel. The stylesheets are parsed
+	 * and their models built in dependency order, so that stylesheets shared
+	 * via includes and imports are built only once, before the files are
+	 * validated.
+	 * 
+	 * @param xslFiles
+	 *            the XSL files
+	 * @param monitor
+	 *            a progress monitor, or null
+	 * @return the validation reports, keyed by file in the order given
+	 * @throws CoreException
+	 *             if any exception occurs while validating
+	 */
+	public Map<IFile, XSLValidationReport> validate(Collection<IFile> xslFiles,
+			IProgressMonitor monitor) throws CoreException {
+		return new XSLBatchValidator(Runtime.getRuntime()
+				.availableProcessors()).validate(xslFiles, monitor);
+	}
+
 	/**
 	 * Validate the given XSL file using the specified report.
 	 * 
@@ -101,14 +121,20 @@ public class XSLValidator {
 	 */
 	public void validate(IFile xslFile, XSLValidationReport report,
 			boolean forceBuild) throws CoreException {
+		new XSLValidator(ValidationPreferenceSnapshot.get(xslFile
+				.getProject())).doValidate(xslFile, report, forceBuild);
+	}
+
+	private void doValidate(IFile xslFile, XSLValidationReport report,
+			boolean forceBuild) throws CoreException {
+		maxErrors = getPreference(ValidationPreferences.MAX_ERRORS);
+		markerCount = report.getErrors().size() + report.getWarnings().size();
 		StylesheetModel stylesheet;
 		if (forceBuild)
 			stylesheet = XSLCore.getInstance().buildStylesheet(xslFile);
 		else
 			stylesheet = XSLCore.getInstance().getStylesheet(xslFile);
 
-		project = xslFile.getProject();
-
 		long start;
 		if (Debug.debugXSLModel) {
 			start = System.currentTimeMillis();
@@ -151,25 +177,7 @@ public class XSLValidator {
 	}
 
 	private int getPreference(String key) {
-		if (project == null) {
-			return XSLCorePlugin.getDefault().getPluginPreferences()
-					.getInt(key);
-		}
-
-		IEclipsePreferences prefs = new ProjectScope(project)
-				.getNode(XSLCorePlugin.getDefault().getBundle()
-						.getSymbolicName());
-		boolean useProject = prefs.getBoolean(
-				XSLCorePlugin.USE_PROJECT_SETTINGS, false);
-
-		int valPref;
-		if (useProject) {
-			valPref = prefs.getInt(key, ValidationMessage.WARNING);
-		} else {
-			valPref = XSLCorePlugin.getDefault().getPluginPreferences().getInt(
-					key);
-		}
-		return valPref;
+		return preferences.get(key);
 	}
 
 	private void checkXPaths(XSLElement xslEl, XSLValidationReport report)
@@ -186,30 +194,32 @@ public class XSLValidator {
 			String attName) throws MaxErrorsExceededException {
 		XSLAttribute att = xslEl.getAttribute(attName);
 		if (att != null && att.getValue() != null) {
-			try {
-				String xslVersion = xslEl.getStylesheet().getVersion();
-				String xpathExp = att.getValue();
-				if (xslVersion.equals(XSLT2_Version)) {
-					XPath20Helper.compile(xpathExp);
-				} else {
-					XSLTXPathHelper.compile(att.getValue());
-				}
-			} catch (XPathExpressionException e) {
+			String xslVersion = xslEl.getStylesheet().getVersion();
+			String error = XPathCache.getInstance().compile(xslVersion,
+					att.getValue());
+			if (error != null) {
 				createMarker(report, att,
 						getPreference(ValidationPreferences.XPATHS),
 						Messages.XSLValidator_1);
-			} catch (NullPointerException e) {
-				// not sure why NPE is being thrown here
 			}
 		}
 	}
 
 	private void checkCircularRef(StylesheetModel stylesheetComposed,
 			XSLValidationReport report) throws MaxErrorsExceededException {
-		if (stylesheetComposed.hasCircularReference())
+		List<IFile> cycle = stylesheetComposed.getCircularReference();
+		if (!cycle.isEmpty()) {
+			StringBuilder path = new StringBuilder();
+			for (IFile file : cycle) {
+				if (path.length() > 0)
+					path.append(" -> "); //$NON-NLS-1$
+				path.append(file.getFullPath());
+			}
 			createMarker(report, stylesheetComposed.getStylesheet(),
 					getPreference(ValidationPreferences.CIRCULAR_REF),
-					Messages.XSLValidator_2);
+					MessageFormat.format(Messages.XSLValidator_24,
+							new Object[] { path }));
+		}
 	}
 
 	private void checkIncludesImports(StylesheetModel stylesheetComposed,
@@ -313,8 +323,11 @@ public class XSLValidator {
 				checkParameters(report, template);
 			}
 
-			for (Template checkTemplate : stylesheetComposed.getTemplates()) {
-				if (checkTemplate != template && checkTemplate.equals(template)) {
+			// the model's lookup tables give the same templates, in the same
+			// order, as comparing against every template
+			for (Template checkTemplate : stylesheetComposed
+					.findMatching(template)) {
+				if (checkTemplate != template) {
 					if (template.getStylesheet() == stylesheetComposed
 							.getStylesheet()
 							&& checkTemplate.getStylesheet() == stylesheetComposed
@@ -518,14 +531,16 @@ public class XSLValidator {
 	private void createMarker(XSLValidationReport report, XSLNode xslNode,
 			int severity, String message) throws MaxErrorsExceededException {
 		if (severity > IMarker.SEVERITY_INFO) {
-			if (report.getErrors().size() + report.getWarnings().size() > getPreference(ValidationPreferences.MAX_ERRORS))
+			if (markerCount > maxErrors)
 				throw new MaxErrorsExceededException();
 			switch (severity) {
 			case IMarker.SEVERITY_ERROR:
 				report.addError(xslNode, message);
+				markerCount++;
 				break;
 			case IMarker.SEVERITY_WARNING:
 				report.addWarning(xslNode, message);
+				markerCount++;
 				break;
 			}
 		}
@@ -536,9 +551,9 @@ public class XSLValidator {
 	 * 
 	 * @return the singleton XSLValidator instance
 	 */
-	public static XSLValidator getInstance() {
+	public static synchronized XSLValidator getInstance() {
 		if (instance == null)
-			instance = new XSLValidator();
+			instance = new XSLValidator(null);
 		return instance;
 	}
 }
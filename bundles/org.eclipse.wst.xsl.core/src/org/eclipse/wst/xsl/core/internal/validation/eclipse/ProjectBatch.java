@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.core.internal.validation.eclipse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.wst.validation.ValidationState;
+import org.eclipse.wst.xsl.core.XSLCore;
+import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+import org.eclipse.wst.xsl.core.internal.validation.XSLValidationReport;
+import org.eclipse.wst.xsl.core.internal.validation.XSLValidator;
+
+/**
+ * Validates all of a project's XSL files as one batch when the framework
+ * validates the whole project, and serves the reports to the validator one
+ * file at a time.
+ * <p>
+ * The framework hands the validator one resource at a time, so the batch is
+ * run when the first file of a full validation is asked for, and is kept in
+ * the <code>ValidationState</code> until the project's validation finishes.
+ * Files validated for a resource delta are still validated on their own.
+ * Each project's batch is locked on its own, so projects validated in
+ * parallel do not wait for each other, and only files the validator's
+ * filters accept are batched.
+ * </p>
+ */
+class ProjectBatch
+{
+	private static final String STATE_ID = XSLCorePlugin.PLUGIN_ID + ".batch."; //$NON-NLS-1$
+
+	private ProjectBatch()
+	{
+	}
+
+	/**
+	 * Forget any batch left for the given project by an earlier validation.
+	 * 
+	 * @param project the project whose validation is starting, or null
+	 * @param state the validation state
+	 */
+	static void start(IProject project, ValidationState state)
+	{
+		if (project != null && state != null)
+			state.put(getId(project), new Batch());
+	}
+
+	/**
+	 * Drop the project's batch once its validation is finished.
+	 * 
+	 * @param project the project whose validation is finishing, or null
+	 * @param state the validation state
+	 */
+	static void finish(IProject project, ValidationState state)
+	{
+		if (project != null && state != null)
+			state.put(getId(project), null);
+	}
+
+	/**
+	 * Get the report for the given file from its project's batch, validating
+	 * the project's XSL files if this is the first file of a full validation.
+	 * 
+	 * @param file the file being validated
+	 * @param kind the kind of resource delta, or <code>IResourceDelta.NO_CHANGE</code> for a full validation
+	 * @param state the validation state
+	 * @param filter the framework's validator, whose filters decide which files are batched, or null
+	 * @param monitor the framework's progress monitor
+	 * @return the report, or null if the file is to be validated on its own
+	 */
+	static XSLValidationReport getReport(IFile file, int kind, ValidationState state, org.eclipse.wst.validation.Validator filter, IProgressMonitor monitor)
+	{
+		if (kind != IResourceDelta.NO_CHANGE || state == null)
+			return null;
+		Batch batch = getBatch(file.getProject(), state);
+		synchronized (batch)
+		{
+			if (batch.reports == null)
+				batch.reports = validate(file.getProject(), filter, monitor);
+			return batch.reports.remove(file);
+		}
+	}
+
+	private static Batch getBatch(IProject project, ValidationState state)
+	{
+		String id = getId(project);
+		// only held while looking up the project's batch
+		synchronized (state)
+		{
+			Batch batch = (Batch) state.get(id);
+			if (batch == null)
+			{
+				batch = new Batch();
+				state.put(id, batch);
+			}
+			return batch;
+		}
+	}
+
+	private static Map<IFile, XSLValidationReport> validate(IProject project, final org.eclipse.wst.validation.Validator filter, IProgressMonitor monitor)
+	{
+		final List<IFile> files = new ArrayList<IFile>();
+		try
+		{
+			project.accept(new IResourceProxyVisitor()
+			{
+				public boolean visit(IResourceProxy proxy) throws CoreException
+				{
+					if (proxy.getType() == IResource.FILE)
+					{
+						IFile file = (IFile) proxy.requestResource();
+						if (filter == null ? XSLCore.isXSLFile(file) : filter.shouldValidate(file, false, false))
+							files.add(file);
+						return false;
+					}
+					return !proxy.isDerived();
+				}
+			}, IResource.NONE);
+			// the monitor is only passed on for cancellation
+			return XSLValidator.getInstance().validate(files, monitor == null ? null : new SubProgressMonitor(monitor, 0));
+		}
+		catch (CoreException e)
+		{
+			XSLCorePlugin.log(e);
+		}
+		catch (OperationCanceledException e)
+		{
+			// the framework stops when it sees the cancellation
+		}
+		// validate each file on its own
+		return new HashMap<IFile, XSLValidationReport>();
+	}
+
+	private static String getId(IProject project)
+	{
+		return STATE_ID + project.getName();
+	}
+
+	/**
+	 * A project's reports, also the lock its batch is validated under.
+	 */
+	private static class Batch
+	{
+		Map<IFile, XSLValidationReport> reports;
+	}
+}
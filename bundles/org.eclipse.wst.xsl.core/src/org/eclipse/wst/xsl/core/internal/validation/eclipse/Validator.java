@@ -17,6 +17,9 @@ package org.eclipse.wst.xsl.core.internal.validation.eclipse;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -56,6 +59,23 @@ public class Validator extends AbstractNestedValidator
 
 	private boolean asYouTypeValidation;
 
+	// the report for the file being validated, if it was validated in a batch
+	private final ThreadLocal<ValidationReport> batchReport = new ThreadLocal<ValidationReport>();
+
+	@Override
+	public void validationStarting(IProject project, ValidationState state, IProgressMonitor monitor)
+	{
+		super.validationStarting(project, state, monitor);
+		ProjectBatch.start(project, state);
+	}
+
+	@Override
+	public void validationFinishing(IProject project, ValidationState state, IProgressMonitor monitor)
+	{
+		ProjectBatch.finish(project, state);
+		super.validationFinishing(project, state, monitor);
+	}
+
 	@Override
 	public void clean(IProject project, ValidationState state, IProgressMonitor monitor)
 	{
@@ -66,12 +86,30 @@ public class Validator extends AbstractNestedValidator
 	@Override
 	public ValidationResult validate(IResource resource, int kind, ValidationState state, IProgressMonitor monitor)
 	{
-		ValidationResult res = super.validate(resource, kind, state, monitor);
+		ValidationResult res;
+		if (resource.getType() == IResource.FILE)
+		{
+			batchReport.set(ProjectBatch.getReport((IFile) resource, kind, state, getParent(), monitor));
+			try
+			{
+				res = super.validate(resource, kind, state, monitor);
+			}
+			finally
+			{
+				batchReport.remove();
+			}
+		}
+		else
+		{
+			res = super.validate(resource, kind, state, monitor);
+		}
 		if (resource.getType() == IResource.FILE)
 		{
 			StylesheetModel stylesheet = XSLCore.getInstance().getStylesheet((IFile) resource);
-			IFile[] dependencies = stylesheet.getFileDependencies().toArray(new IFile[0]);
-			res.setDependsOn(dependencies);
+			Set<IFile> dependencies = new HashSet<IFile>(stylesheet.getFileDependencies());
+			// so that the file is validated again when a missing include appears
+			dependencies.addAll(XSLCore.getInstance().getMissingFiles((IFile) resource));
+			res.setDependsOn(dependencies.toArray(new IFile[0]));
 		}
 		return res;
 	} 
@@ -95,7 +133,10 @@ public class Validator extends AbstractNestedValidator
 	@Override
 	public ValidationReport validate(final String uri, InputStream inputstream, NestedValidatorContext context)
 	{
-		ValidationReport valreport = new XSLValidationReport(uri);
+		ValidationReport valreport = batchReport.get();
+		if (valreport != null)
+			return valreport;
+		valreport = new XSLValidationReport(uri);
 		
 		try
 		{
@@ -1,5 +1,11 @@
 package org.eclipse.wst.xsl.core.internal.validation.eclipse;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -20,6 +26,7 @@ import org.eclipse.wst.xml.core.internal.validation.core.ValidationReport;
 import org.eclipse.wst.xsl.core.XSLCore;
 import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
 import org.eclipse.wst.xsl.core.internal.validation.XSLValidationMessage;
+import org.eclipse.wst.xsl.core.internal.validation.XSLValidationReport;
 import org.eclipse.wst.xsl.core.internal.validation.XSLValidator;
 import org.eclipse.wst.xsl.core.model.StylesheetModel;
 
@@ -41,6 +48,20 @@ public class Validator2 extends AbstractValidator implements IValidatorJob
 		super.clean(project, state, monitor);
 	}
 
+	@Override
+	public void validationStarting(IProject project, ValidationState state, IProgressMonitor monitor)
+	{
+		super.validationStarting(project, state, monitor);
+		ProjectBatch.start(project, state);
+	}
+
+	@Override
+	public void validationFinishing(IProject project, ValidationState state, IProgressMonitor monitor)
+	{
+		ProjectBatch.finish(project, state);
+		super.validationFinishing(project, state, monitor);
+	}
+
 	@Override
 	public ValidationResult validate(IResource resource, int kind, ValidationState state, IProgressMonitor monitor)
 	{
@@ -53,25 +74,65 @@ public class Validator2 extends AbstractValidator implements IValidatorJob
 		{
 			IFile file = (IFile)resource;
 			ValidationReport report = doValidation(file, kind, state, monitor);
-			StylesheetModel stylesheet = XSLCore.getInstance().getStylesheet(file);
-			IFile[] dependencies = stylesheet.getFileDependencies().toArray(new IFile[0]);
-			result.setDependsOn(dependencies);
-			
-			for (ValidationMessage message : report.getValidationMessages())
+			result = createResult(file, report);
+		}
+		return result;
+	}
+
+	/**
+	 * Validate the given files in parallel, for example all of the XSL files in a project.
+	 * 
+	 * @param files the XSL files to validate
+	 * @param monitor a progress monitor, or null
+	 * @return the validation results, keyed by file
+	 */
+	public Map<IFile, ValidationResult> validate(Collection<IFile> files, IProgressMonitor monitor)
+	{
+		Map<IFile, ValidationResult> results = new LinkedHashMap<IFile, ValidationResult>();
+		try
+		{
+			Map<IFile, XSLValidationReport> reports = XSLValidator.getInstance().validate(files, monitor);
+			for (Map.Entry<IFile, XSLValidationReport> entry : reports.entrySet())
 			{
-				XSLValidationMessage xslMsg = (XSLValidationMessage)message;
-				ValidatorMessage msg = ValidatorMessage.create(message.getMessage(), resource);
-				msg.setAttribute("lineNumber", xslMsg.getLineNumber()); //$NON-NLS-1$
-				msg.setAttribute("severity", xslMsg.getSeverity()); //$NON-NLS-1$
-				result.add(msg);
+				results.put(entry.getKey(), createResult(entry.getKey(), entry.getValue()));
 			}
 		}
+		catch (CoreException e)
+		{
+			XSLCorePlugin.log(e);
+		}
+		return results;
+	}
+
+	private ValidationResult createResult(IFile file, ValidationReport report)
+	{
+		ValidationResult result = new ValidationResult();
+		StylesheetModel stylesheet = XSLCore.getInstance().getStylesheet(file);
+		if (stylesheet != null)
+		{
+			Set<IFile> dependencies = new HashSet<IFile>(stylesheet.getFileDependencies());
+			dependencies.addAll(XSLCore.getInstance().getMissingFiles(file));
+			result.setDependsOn(dependencies.toArray(new IFile[0]));
+		}
+		if (report == null)
+			return result;
+
+		for (ValidationMessage message : report.getValidationMessages())
+		{
+			XSLValidationMessage xslMsg = (XSLValidationMessage)message;
+			ValidatorMessage msg = ValidatorMessage.create(message.getMessage(), file);
+			msg.setAttribute("lineNumber", xslMsg.getLineNumber()); //$NON-NLS-1$
+			msg.setAttribute("severity", xslMsg.getSeverity()); //$NON-NLS-1$
+			result.add(msg);
+		}
 		return result;
 	}
 
 	private ValidationReport doValidation(IFile file, int kind, ValidationState state, IProgressMonitor monitor)
 	{
-		ValidationReport valreport = null;
+		ValidationReport valreport = ProjectBatch.getReport(file, kind, state, getParent(), monitor);
+		if (valreport != null)
+			return valreport;
 		try
 		{
 			valreport = XSLValidator.getInstance().validate(file,true);
@@ -15,26 +15,58 @@
 
 package org.eclipse.wst.xsl.core.internal.xinclude;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collection;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
 
-import org.w3c.dom.Document;
+import org.eclipse.wst.xsl.core.internal.util.BoundedCache;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.EntityResolver2;
 
 /**
  * XIncluder will read an XML file, that has elements from the XInclude
  * namespace and follows the W3C XInclude specification (http://www.w3.org/TR/xinclude/).
  * It will output a merged file.
+ * <p>
+ * The merge is streamed: SAX events from an XInclude aware parser are
+ * serialized as they arrive, so memory use does not grow with the size of the
+ * documents. Small included documents are kept in memory, so a document
+ * included many times, by this or later merges, is only read once while it
+ * is unchanged.
+ * </p>
  * @author Lars Vogel
  *
  */
 public class XIncluder {
+	private static final String XINCLUDE_FEATURE = "http://apache.org/xml/features/xinclude"; //$NON-NLS-1$
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// included documents larger than this are always streamed from disk
+	private static final int MAX_CACHED_DOCUMENT = 1024 * 1024;
+	private static final long MAX_CACHED_TOTAL = 16 * 1024 * 1024;
+
+	private static final BoundedCache.Weigher<CachedDocument> WEIGHER = new BoundedCache.Weigher<CachedDocument>() {
+		public int weigh(CachedDocument document) {
+			return Math.max(1, document.contents.length);
+		}
+	};
+
+	private final BoundedCache<String, CachedDocument> documents = new BoundedCache<String, CachedDocument>(
+			MAX_CACHED_TOTAL, WEIGHER, false);
 
 	/**
 	 * extracXMLFile merges the files referenced by xinclude include elements.
@@ -43,31 +75,153 @@ public class XIncluder {
 	 * @throws Exception
 	 */
 	public void extractXMLFile(String in, String out) throws Exception {
-		Document document = null;
-		File file;
-
-		file = new File(in);
-		file.getAbsolutePath();
-		file.lastModified();
-		
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-		
+		extractXMLFile(in, out, null);
+	}
+
+	/**
+	 * extracXMLFile merges the files referenced by xinclude include elements,
+	 * recording the documents that were included.
+	 * @param in  The full path to the input XML file
+	 * @param out The full path to the merged XML file
+	 * @param included If not null, receives the absolute URIs of the included
+	 *                 documents and external entities, whether or not they
+	 *                 could be read
+	 * @throws Exception
+	 */
+	public void extractXMLFile(String in, String out, Collection<String> included)
+			throws Exception {
+		SAXParserFactory spf = SAXParserFactory.newInstance();
+
 		// Make sure we are getting a configuration that is XInclude Aware
-		dbf.setAttribute("http://apache.org/xml/features/xinclude", true); //$NON-NLS-1$
-		dbf.setXIncludeAware(true);
-		dbf.setNamespaceAware(true);
-
-		
-		DocumentBuilder dom = dbf.newDocumentBuilder();
-		document = dom.parse(file);
-		
+		spf.setFeature(XINCLUDE_FEATURE, true);
+		spf.setXIncludeAware(true);
+		spf.setNamespaceAware(true);
+
+		XMLReader reader = spf.newSAXParser().getXMLReader();
+		reader.setEntityResolver(new CachingResolver(included));
+		InputSource input = new InputSource(new File(in).toURI().toString());
+
 		// ---- Use a XSLT transformer for writing the new XML file ----
 		Transformer transformer = TransformerFactory.newInstance()
 				.newTransformer();
-		
-		DOMSource source = new DOMSource(document);
-		FileOutputStream os = new FileOutputStream(new File(out));
-		StreamResult result = new StreamResult(os);
-		transformer.transform(source, result);
+
+		OutputStream os = new BufferedOutputStream(new FileOutputStream(
+				new File(out)), BUFFER_SIZE);
+		try {
+			transformer.transform(new SAXSource(reader, input),
+					new StreamResult(os));
+		} finally {
+			os.close();
+		}
+	}
+
+	/**
+	 * Get the cache of small included documents, for example to inspect its
+	 * hit, miss and eviction counts.
+	 * 
+	 * @return the cache, keyed by absolute URI
+	 */
+	public BoundedCache<String, ?> getDocumentCache() {
+		return documents;
+	}
+
+	private static File toFile(String systemId) {
+		if (systemId == null || !systemId.startsWith("file:")) //$NON-NLS-1$
+			return null;
+		try {
+			File file = new File(new URI(systemId));
+			return file.isFile() ? file : null;
+		} catch (URISyntaxException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			// not a hierarchical file URI
+			return null;
+		}
+	}
+
+	private static byte[] read(File file, int length) throws IOException {
+		byte[] contents = new byte[length];
+		InputStream is = new FileInputStream(file);
+		try {
+			int offset = 0;
+			while (offset < length) {
+				int read = is.read(contents, offset, length - offset);
+				if (read < 0)
+					throw new IOException(file.getPath());
+				offset += read;
+			}
+		} finally {
+			is.close();
+		}
+		return contents;
+	}
+
+	/**
+	 * Serves included local files from the cache, reading and caching those
+	 * that are small enough. Anything else is left to the parser.
+	 */
+	private class CachingResolver implements EntityResolver2 {
+		private final Collection<String> included;
+
+		CachingResolver(Collection<String> included) {
+			this.included = included;
+		}
+
+		public InputSource resolveEntity(String name, String publicId,
+				String baseURI, String systemId) throws IOException {
+			String uri = systemId;
+			if (baseURI != null && systemId != null) {
+				try {
+					uri = new URI(baseURI).resolve(new URI(systemId))
+							.toString();
+				} catch (URISyntaxException e) {
+					return null;
+				}
+			}
+			if (included != null && uri != null)
+				included.add(uri);
+			File file = toFile(uri);
+			if (file == null)
+				return null;
+			long length = file.length();
+			long modified = file.lastModified();
+			CachedDocument document = documents.get(uri);
+			if (document == null || document.length != length
+					|| document.modified != modified) {
+				if (length > MAX_CACHED_DOCUMENT)
+					return null;
+				document = new CachedDocument(read(file, (int) length),
+						modified);
+				documents.put(uri, document);
+			}
+			InputSource source = new InputSource(new ByteArrayInputStream(
+					document.contents));
+			source.setPublicId(publicId);
+			// keep the system identifier as written, so that the parser
+			// resolves it (and any xml:base it adds) as it would otherwise
+			source.setSystemId(systemId);
+			return source;
+		}
+
+		public InputSource resolveEntity(String publicId, String systemId)
+				throws IOException {
+			return resolveEntity(null, publicId, null, systemId);
+		}
+
+		public InputSource getExternalSubset(String name, String baseURI) {
+			return null;
+		}
+	}
+
+	private static class CachedDocument {
+		final byte[] contents;
+		final long length;
+		final long modified;
+
+		CachedDocument(byte[] contents, long modified) {
+			this.contents = contents;
+			this.length = contents.length;
+			this.modified = modified;
+		}
 	}
 }
@@ -14,8 +14,14 @@
 package org.eclipse.wst.xsl.core.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
@@ -42,7 +48,7 @@ import org.eclipse.wst.xsl.core.internal.util.Debug;
  */
 public class StylesheetModel extends XSLModelObject {
 	private final Stylesheet stylesheet;
-	boolean circularReference;
+	List<IFile> circularReference = Collections.emptyList();
 	final Set<IFile> files = new HashSet<IFile>();
 	final Set<Stylesheet> stylesheets = new HashSet<Stylesheet>();
 	final List<Include> includeModel = new ArrayList<Include>();
@@ -52,6 +58,13 @@ public class StylesheetModel extends XSLModelObject {
 	final List<Variable> globalVariables = new ArrayList<Variable>();
 	final List<CallTemplate> callTemplates = new ArrayList<CallTemplate>();
 	final List<Function> functions = new ArrayList<Function>();
+	// lookup tables, built at the end of fix()
+	private final Map<String, List<Template>> templatesByName = new HashMap<String, List<Template>>();
+	private final Map<List<String>, List<Template>> templatesByNameKey = new HashMap<List<String>, List<Template>>();
+	private final Map<List<String>, List<Template>> templatesByMatchKey = new HashMap<List<String>, List<Template>>();
+	private final Map<Template, Integer> templateOrder = new IdentityHashMap<Template, Integer>();
+	private final Map<String, List<Function>> functionsByName = new HashMap<String, List<Function>>();
+	private final Map<String, List<Variable>> globalVariablesByName = new HashMap<String, List<Variable>>();
 
 	/**
 	 * Create a new instance of this.
@@ -136,15 +149,10 @@ public class StylesheetModel extends XSLModelObject {
 	 * 
 	 * @param name
 	 *            the template name
-	 * @return the set of named templates with the given name
+	 * @return an unmodifiable list of the named templates with the given name
 	 */
 	public List<Template> getTemplatesByName(String name) {
-		List<Template> matching = new ArrayList<Template>(templates.size());
-		for (Template template : templates) {
-			if (name.equals(template.getName()))
-				matching.add(template);
-		}
-		return matching;
+		return lookup(templatesByName, name);
 	}
 
 	/**
@@ -153,15 +161,37 @@ public class StylesheetModel extends XSLModelObject {
 	 * 
 	 * @param toMatch
 	 *            the template to match
-	 * @return the set of templates that match
+	 * @return an unmodifiable list of the templates that match, in the order
+	 *         of <code>getTemplates()</code>
 	 */
 	public List<Template> findMatching(Template toMatch) {
-		List<Template> matching = new ArrayList<Template>(templates.size());
-		for (Template template : templates) {
-			if (template.equals(toMatch))
+		List<Template> byName = toMatch.getName() == null ? Collections
+				.<Template> emptyList() : lookup(templatesByNameKey,
+				nameKey(toMatch));
+		List<Template> byMatch = toMatch.getMatch() == null ? Collections
+				.<Template> emptyList() : lookup(templatesByMatchKey,
+				matchKey(toMatch));
+		if (byMatch.isEmpty())
+			return byName;
+		if (byName.isEmpty())
+			return byMatch;
+		// templates with both a name and a match may be in both lists. They
+		// are told apart by identity, since Template.equals() is looser.
+		Map<Template, Template> seen = new IdentityHashMap<Template, Template>();
+		for (Template template : byName) {
+			seen.put(template, template);
+		}
+		List<Template> matching = new ArrayList<Template>(byName);
+		for (Template template : byMatch) {
+			if (!seen.containsKey(template))
 				matching.add(template);
 		}
-		return matching;
+		Collections.sort(matching, new Comparator<Template>() {
+			public int compare(Template t1, Template t2) {
+				return templateOrder.get(t1).compareTo(templateOrder.get(t2));
+			}
+		});
+		return Collections.unmodifiableList(matching);
 	}
 
 	/**
@@ -171,6 +201,19 @@ public class StylesheetModel extends XSLModelObject {
 	 * @return <code>true</code> if this has a circular reference
 	 */
 	public boolean hasCircularReference() {
+		return !circularReference.isEmpty();
+	}
+
+	/**
+	 * Get the files forming a circular chain of includes in the
+	 * import/included hierarchy of this.
+	 * 
+	 * @return an unmodifiable list of the files in the cycle, starting and
+	 *         ending with the same file, or an empty list if there is no
+	 *         circular reference
+	 * @since 1.1
+	 */
+	public List<IFile> getCircularReference() {
 		return circularReference;
 	}
 
@@ -197,6 +240,7 @@ public class StylesheetModel extends XSLModelObject {
 			handleInclude(inc);
 		}
 		circularReference = checkCycles();
+		buildIndexes();
 		if (Debug.debugXSLModel) {
 			long end = System.currentTimeMillis();
 			System.out
@@ -204,20 +248,92 @@ public class StylesheetModel extends XSLModelObject {
 		}
 	}
 
-	private boolean checkCycles() {
-		Set<IFile> seen = new HashSet<IFile>();
-		IFile mainFile = getStylesheet().getFile();
-		if (checkCycles(mainFile, seen)) return true;
+	private void buildIndexes() {
+		for (int i = 0; i < templates.size(); i++) {
+			Template template = templates.get(i);
+			templateOrder.put(template, i);
+			String name = template.getName();
+			// the keys include the priority, as Template.equals() requires it
+			// to match
+			if (name != null) {
+				add(templatesByName, name, template);
+				add(templatesByNameKey, nameKey(template), template);
+			}
+			if (template.getMatch() != null)
+				add(templatesByMatchKey, matchKey(template), template);
+		}
+		for (Function function : functions) {
+			String name = function.getName();
+			if (name != null)
+				add(functionsByName, name, function);
+		}
+		for (Variable variable : globalVariables) {
+			String name = variable.getName();
+			if (name != null)
+				add(globalVariablesByName, name, variable);
+		}
+		freeze(templatesByName);
+		freeze(templatesByNameKey);
+		freeze(templatesByMatchKey);
+		freeze(functionsByName);
+		freeze(globalVariablesByName);
+	}
+
+	private static List<String> matchKey(Template template) {
+		return Arrays.asList(template.getMatch(), template.getMode(), template
+				.getPriority());
+	}
+
+	private static List<String> nameKey(Template template) {
+		return Arrays.asList(template.getName(), template.getPriority());
+	}
+
+	private static <K, V> void add(Map<K, List<V>> index, K key, V value) {
+		List<V> list = index.get(key);
+		if (list == null) {
+			list = new ArrayList<V>(1);
+			index.put(key, list);
+		}
+		list.add(value);
+	}
 
-		// For the remaining files, assume 
-		seen.add(mainFile);
-		for (IFile file : files) {
-			if (file.equals(mainFile)) continue;
-			if (checkCycles(file, seen)) return true;
+	private static <K, V> void freeze(Map<K, List<V>> index) {
+		for (Map.Entry<K, List<V>> entry : index.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
 		}
-		return false;
+	}
+
+	private static <K, V> List<V> lookup(Map<K, List<V>> index, K key) {
+		List<V> list = index.get(key);
+		if (list == null)
+			return Collections.emptyList();
+		return list;
+	}
+
+	private List<IFile> checkCycles() {
+		// the main file first, so that a cycle through it is reported
+		List<IFile> roots = new ArrayList<IFile>(files.size() + 1);
+		roots.add(getStylesheet().getFile());
+		roots.addAll(files);
+		List<IFile> cycle = XSLCore.getInstance().getIncludeGraph()
+				.findIncludeCycle(roots);
+		return cycle.isEmpty() ? cycle : Collections.unmodifiableList(cycle);
 	}
 	
+	/**
+	 * Determine whether there is a circular chain of includes starting from
+	 * the given file, other than through the files in <code>seen</code>.
+	 * 
+	 * @param included
+	 *            the file to start from
+	 * @param seen
+	 *            the files on the current path
+	 * @return <code>true</code> if a circular reference was found
+	 * @deprecated this walks the include hierarchy once per path; use
+	 *             {@link #getCircularReference()} on the model of the file
+	 *             instead
+	 */
+	@Deprecated
 	public static boolean checkCycles(IFile included, Set<IFile> seen) {
 		if (seen.contains(included)) return true;
 		seen.add(included);
@@ -289,16 +405,25 @@ public class StylesheetModel extends XSLModelObject {
 	 * 
 	 * @param name
 	 *            the template name
-	 * @return the set of named templates with the given name
+	 * @return an unmodifiable list of the functions with the given name
 	 * @since 1.1
 	 */
 	public List<Function> getFunctionByName(String name) {
-		List<Function> matching = new ArrayList<Function>(functions.size());
-		for (Function function : functions) {
-			if (name.equals(function.getName()))
-				matching.add(function);
-		}
-		return matching;
+		return lookup(functionsByName, name);
+	}
+
+	/**
+	 * Get all global variables and parameters that are included in this
+	 * stylesheet anywhere in the hierarchy via either import or include which
+	 * have the given name.
+	 * 
+	 * @param name
+	 *            the variable name
+	 * @return an unmodifiable list of the global variables with the given name
+	 * @since 1.1
+	 */
+	public List<Variable> getGlobalVariablesByName(String name) {
+		return lookup(globalVariablesByName, name);
 	}
 
 }
\ No newline at end of file
@@ -32,6 +32,7 @@ import org.eclipse.wst.xml.core.internal.provisional.document.IDOMModel;
 import org.eclipse.wst.xsl.core.XSLCore;
 import org.eclipse.wst.xsl.core.internal.Messages;
 import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+import org.eclipse.wst.xsl.core.internal.util.FileStampCache;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.InputSource;
@@ -49,6 +50,9 @@ public class ResolverExtension implements URIResolverExtension
 	private static final String XSLT_STYLESHEET = "stylesheet"; //$NON-NLS-1$
 	private static final String XSLT_TRANSFORM = "transform"; //$NON-NLS-1$
 	private static final String XSLT_VERSION = "version"; //$NON-NLS-1$
+	// stands for a file without a version, compared by identity
+	private static final String NO_VERSION = new String();
+	private static final FileStampCache<String> versionCache = new FileStampCache<String>(1000);
 
 	private boolean initialised;
 	private String xslt_1_0_fileURL;
@@ -69,7 +73,12 @@ public class ResolverExtension implements URIResolverExtension
 		if (file != null)
 			version = peekVersionAttributeFromSSE(file);
 		if (version == null)
-			version = peekVersionFromFile(file, baseLocation);
+		{
+			if (file != null)
+				version = peekVersionFromFile(file);
+			else
+				version = peekVersionFromFile(null, baseLocation);
+		}
 
 		if (version == null)
 			return null;
@@ -123,12 +132,27 @@ public class ResolverExtension implements URIResolverExtension
 		}
 	}
 
+	private String peekVersionFromFile(IFile file)
+	{
+		// the file is not open in an editor, so its contents are on disk
+		String version = versionCache.get(file);
+		if (version == null)
+		{
+			long stamp = file.getModificationStamp();
+			version = peekVersionFromFile(file, null);
+			versionCache.put(file, stamp, version == null ? NO_VERSION : version);
+		}
+		return version == NO_VERSION ? null : version;
+	}
+
 	private String peekVersionFromFile(IFile file, String baseLocation)
 	{
 		XSLVersionHandler handler = new XSLVersionHandler();
+		InputSource source = null;
 		try
 		{
-			handler.parseContents(file != null ? createInputSource(file) : createInputSource(baseLocation));
+			source = file != null ? createInputSource(file) : createInputSource(baseLocation);
+			handler.parseContents(source);
 		}
 		catch (SAXException se)
 		{
@@ -153,6 +177,20 @@ public class ResolverExtension implements URIResolverExtension
 			XSLCorePlugin.log(ce);
 			// drop through, since this is not really a show-stopper
 		}
+		finally
+		{
+			if (source != null && source.getByteStream() != null)
+			{
+				try
+				{
+					source.getByteStream().close();
+				}
+				catch (IOException e)
+				{
+					// ignore
+				}
+			}
+		}
 
 		String versionX = handler.getVersionAttribute();
 		return versionX;
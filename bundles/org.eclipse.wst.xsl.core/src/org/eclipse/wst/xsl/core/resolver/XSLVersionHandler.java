@@ -12,19 +12,25 @@
 
 package org.eclipse.wst.xsl.core.resolver;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.io.StringReader;
 import javax.xml.parsers.*;
 
 import org.apache.xerces.jaxp.SAXParserImpl;
 import org.eclipse.wst.xsl.core.XSLCore;
 import org.eclipse.wst.xsl.core.internal.XSLCorePlugin;
+import org.eclipse.wst.xsl.core.internal.util.XMLRootScanner;
 import org.xml.sax.*;
 import org.xml.sax.ext.LexicalHandler;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * A simple XML parser to find the XSL version of a given XML file, expectedly a XSLT stylesheet.
+ * Byte streams are first scanned without a parser, which is only used if the
+ * scan cannot decide.
  */
 public final class XSLVersionHandler extends DefaultHandler implements LexicalHandler, ErrorHandler {
 
@@ -137,6 +143,21 @@ public final class XSLVersionHandler extends DefaultHandler implements LexicalHa
 	 * @throws SAXException
 	 */
 	public boolean parseContents(InputSource contents) throws IOException, ParserConfigurationException, SAXException {
+		InputStream in = contents.getByteStream();
+		if (in != null && contents.getCharacterStream() == null) {
+			// try to read the root element without a parser first
+			XMLRootScanner scanner = XMLRootScanner.getInstance();
+			if (scanner.scan(in)) {
+				if (XSLCore.XSL_NAMESPACE_URI.equals(scanner.getNamespace()) && (XSLT_TRANSFORM.equals(scanner.getLocalName()) || XSLT_STYLESHEET.equals(scanner.getLocalName()))) {
+					versionAttribute = scanner.getVersion();
+				} else {
+					versionAttribute = ""; //$NON-NLS-1$
+				}
+				return true;
+			}
+			// let the parser see the bytes already consumed
+			contents.setByteStream(new SequenceInputStream(new ByteArrayInputStream(scanner.getConsumedBytes()), in));
+		}
 		// Parse the file into we have what we need (or an error occurs).
 		try {
 			SAXParserFactory factory = XSLCorePlugin.getDefault().getFactory();
@@ -51,6 +51,8 @@ public class ProcessorBlock extends AbstractLaunchConfigurationTab
 	private ComboViewer runComboViewer;
 	private ComboViewer factoryComboViewer;
 	private ITransformerFactory currentFactory;
+	private Button useWorkerButton;
+	private Button profileButton;
 
 	public ProcessorBlock()
 	{
@@ -216,6 +218,28 @@ public class ProcessorBlock extends AbstractLaunchConfigurationTab
 			}
 		});
 
+		useWorkerButton = createCheckButton(group, ProcessorMessages.ProcessorBlock_8);
+		useWorkerButton.setLayoutData(new GridData(SWT.BEGINNING, SWT.CENTER, false, false, 2, 1));
+		useWorkerButton.addSelectionListener(new SelectionAdapter()
+		{
+			@Override
+			public void widgetSelected(SelectionEvent e)
+			{
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		profileButton = createCheckButton(group, ProcessorMessages.ProcessorBlock_9);
+		profileButton.setLayoutData(new GridData(SWT.BEGINNING, SWT.CENTER, false, false, 2, 1));
+		profileButton.addSelectionListener(new SelectionAdapter()
+		{
+			@Override
+			public void widgetSelected(SelectionEvent e)
+			{
+				updateLaunchConfigurationDialog();
+			}
+		});
+
 //		overridePreferencesButton = new Button(group,SWT.CHECK);
 //		overridePreferencesButton.setText("Override preferences");
 //		gd = new GridData(SWT.NONE,SWT.NONE,false,false);
@@ -267,6 +291,8 @@ public class ProcessorBlock extends AbstractLaunchConfigurationTab
 	{
 		try
 		{
+			useWorkerButton.setSelection(configuration.getAttribute(JAXPLaunchConfigurationConstants.ATTR_USE_WORKER, false));
+			profileButton.setSelection(configuration.getAttribute(JAXPLaunchConfigurationConstants.ATTR_PROFILE, false));
 			boolean useDefaultProcessor = configuration.getAttribute(JAXPLaunchConfigurationConstants.ATTR_USE_DEFAULT_PROCESSOR, true);
 			if (useDefaultProcessor)
 			{
@@ -329,6 +355,8 @@ public class ProcessorBlock extends AbstractLaunchConfigurationTab
 
 	public void performApply(ILaunchConfigurationWorkingCopy configuration)
 	{
+		configuration.setAttribute(JAXPLaunchConfigurationConstants.ATTR_USE_WORKER, useWorkerButton.getSelection());
+		configuration.setAttribute(JAXPLaunchConfigurationConstants.ATTR_PROFILE, profileButton.getSelection());
 		boolean usePreferences = usePreferencesRadio.getSelection();
 		configuration.setAttribute(JAXPLaunchConfigurationConstants.ATTR_USE_DEFAULT_PROCESSOR, usePreferences);
 		if (!usePreferences)
@@ -343,6 +371,8 @@ public class ProcessorBlock extends AbstractLaunchConfigurationTab
 	{
 		configuration.setAttribute(JAXPLaunchConfigurationConstants.ATTR_USE_DEFAULT_PROCESSOR, true);
 		configuration.setAttribute(JAXPLaunchConfigurationConstants.ATTR_PROCESSOR, (String) null);
+		configuration.setAttribute(JAXPLaunchConfigurationConstants.ATTR_USE_WORKER, false);
+		configuration.setAttribute(JAXPLaunchConfigurationConstants.ATTR_PROFILE, false);
 	}
 
 	private static class ComboContentProvider implements IStructuredContentProvider
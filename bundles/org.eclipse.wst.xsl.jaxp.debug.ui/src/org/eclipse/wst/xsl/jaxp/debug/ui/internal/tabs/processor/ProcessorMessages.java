@@ -22,6 +22,8 @@ class ProcessorMessages extends NLS
 	public static String ProcessorBlock_4;
 	public static String ProcessorBlock_6;
 	public static String ProcessorBlock_7;
+	public static String ProcessorBlock_8;
+	public static String ProcessorBlock_9;
 	public static String ProcessorsComboBlock_1;
 	public static String ProcessorDetailsDialog_Title;
 	public static String ProcessorDetailsDialog_installName;
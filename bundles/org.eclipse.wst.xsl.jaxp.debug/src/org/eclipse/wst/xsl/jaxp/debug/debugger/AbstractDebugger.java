@@ -66,6 +66,7 @@ public abstract class AbstractDebugger implements IXSLDebugger {
 	private BreakPoint breakpoint;
 	private URL sourceURL;
 	private Result result;
+	private Writer target;
 
 	private int stepOverStackSize;
 
@@ -85,23 +86,9 @@ public abstract class AbstractDebugger implements IXSLDebugger {
 		this.sourceURL = sourceURL;
 	}
 
-	public synchronized void setTarget(final Writer writer) {
-		result = new StreamResult(new Writer() {
-			public void write(char[] cbuf, int off, int len) throws IOException {
-				writer.write(cbuf, off, len);
-				generatedWriter.write(cbuf, off, len);
-			}
-
-			public void close() throws IOException {
-				writer.close();
-				generatedWriter.close();
-			}
-
-			public void flush() throws IOException {
-				writer.flush();
-				generatedWriter.flush();
-			}
-		});
+	public synchronized void setTarget(Writer writer) {
+		target = new TeeWriter(writer, generatedWriter);
+		result = new StreamResult(target);
 	}
 
 	public synchronized void run() {
@@ -112,6 +99,7 @@ public abstract class AbstractDebugger implements IXSLDebugger {
 			} catch (TransformationException e) {
 				log.error("Transform failed", e); //$NON-NLS-1$
 			}
+			flushTarget();
 			debuggerStopped();
 		}
 	}
@@ -272,6 +260,8 @@ public abstract class AbstractDebugger implements IXSLDebugger {
 
 	public synchronized void debuggerSuspended(BreakPoint breakpoint) {
 		this.breakpoint = breakpoint;
+		// show everything generated so far while suspended
+		flushTarget();
 		do {
 			try {
 				wait();
@@ -291,6 +281,16 @@ public abstract class AbstractDebugger implements IXSLDebugger {
 			sendEvent(EVENT_RESUMED);
 	}
 
+	private synchronized void flushTarget() {
+		if (target == null)
+			return;
+		try {
+			target.flush();
+		} catch (IOException e) {
+			log.error("Error writing the result", e); //$NON-NLS-1$
+		}
+	}
+
 	private synchronized void sendEvent(String event) {
 		try {
 			log.info("Sending event: " + event + " eventWriter=" + eventWriter); //$NON-NLS-1$//$NON-NLS-2$
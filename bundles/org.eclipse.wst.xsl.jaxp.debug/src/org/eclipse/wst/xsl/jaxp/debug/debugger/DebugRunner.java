@@ -304,6 +304,12 @@ public class DebugRunner {
 					return tFactory;
 				}
 
+				@Override
+				protected boolean isTemplatesCacheEnabled() {
+					// the debugger instruments each compilation
+					return false;
+				}
+
 				@Override
 				public void addStylesheet(URL stylesheet, Map parameters,
 						Properties outputProperties, URIResolver resolver)
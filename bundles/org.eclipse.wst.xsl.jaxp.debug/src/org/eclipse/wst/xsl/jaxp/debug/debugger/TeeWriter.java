@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.debugger;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer that copies everything written to it to two writers.
+ * <p>
+ * Serializers tend to write a few characters at a time, so writes are
+ * collected in a buffer and passed on to both writers in large blocks. The
+ * second writer is optional.
+ * </p>
+ */
+class TeeWriter extends Writer {
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private final Writer first;
+	private final Writer second;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int count;
+
+	/**
+	 * Create a new instance of this.
+	 *
+	 * @param first
+	 *            the first writer
+	 * @param second
+	 *            the second writer, or null
+	 */
+	TeeWriter(Writer first, Writer second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	@Override
+	public synchronized void write(char[] cbuf, int off, int len)
+			throws IOException {
+		if (len >= BUFFER_SIZE) {
+			// too large to be worth copying
+			flushBuffer();
+			writeThrough(cbuf, off, len);
+			return;
+		}
+		if (len > BUFFER_SIZE - count)
+			flushBuffer();
+		System.arraycopy(cbuf, off, buffer, count, len);
+		count += len;
+	}
+
+	@Override
+	public synchronized void write(int c) throws IOException {
+		if (count == BUFFER_SIZE)
+			flushBuffer();
+		buffer[count++] = (char) c;
+	}
+
+	@Override
+	public synchronized void write(String str, int off, int len)
+			throws IOException {
+		if (len >= BUFFER_SIZE) {
+			flushBuffer();
+			first.write(str, off, len);
+			if (second != null)
+				second.write(str, off, len);
+			return;
+		}
+		if (len > BUFFER_SIZE - count)
+			flushBuffer();
+		str.getChars(off, off + len, buffer, count);
+		count += len;
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		flushBuffer();
+		first.flush();
+		if (second != null)
+			second.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flushBuffer();
+		} finally {
+			try {
+				first.close();
+			} finally {
+				if (second != null)
+					second.close();
+			}
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			writeThrough(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	private void writeThrough(char[] cbuf, int off, int len)
+			throws IOException {
+		first.write(cbuf, off, len);
+		if (second != null)
+			second.write(cbuf, off, len);
+	}
+}
@@ -38,7 +38,7 @@ public interface IProcessorInvoker
 	 * 
 	 * @param attributes a map of String v. String attributes
 	 */
-	void setAttributes(Map attributes);
+	void setAttributes(Map<?, ?> attributes);
 
 	/**
 	 * Add a stylesheet to the pipeline (order is important).
@@ -49,7 +49,7 @@ public interface IProcessorInvoker
 	 * @param resolver the <code>URIResolver</code> to use
 	 * @throws TransformerConfigurationException if stylesheet could not be added
 	 */
-	void addStylesheet(URL stylesheet, Map parameters, Properties outputProperties, URIResolver resolver) throws TransformerConfigurationException;
+	void addStylesheet(URL stylesheet, Map<?, ?> parameters, Properties outputProperties, URIResolver resolver) throws TransformerConfigurationException;
 
 	/**
 	 * Perform the actual transformation.
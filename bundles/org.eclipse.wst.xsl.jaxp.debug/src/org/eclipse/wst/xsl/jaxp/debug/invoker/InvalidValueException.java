@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.invoker;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a pipeline attribute or parameter has a value that cannot be
+ * converted to its type.
+ *
+ * @since 1.1
+ */
+public class InvalidValueException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	private final String name;
+	private final String type;
+
+	/**
+	 * Create a new instance of this for the given value.
+	 *
+	 * @param message
+	 *            the message, which names the value and its type
+	 * @param name
+	 *            the name of the attribute or parameter
+	 * @param type
+	 *            the type of the value
+	 * @param cause
+	 *            the cause
+	 */
+	public InvalidValueException(String message, String name, String type,
+			Throwable cause) {
+		super(message);
+		this.name = name;
+		this.type = type;
+		initCause(cause);
+	}
+
+	/**
+	 * Get the name of the attribute or parameter with the invalid value.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the type that the value could not be converted to.
+	 *
+	 * @return the type
+	 */
+	public String getType() {
+		return type;
+	}
+}
@@ -11,15 +11,22 @@
  *******************************************************************************/
 package org.eclipse.wst.xsl.jaxp.debug.invoker;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -32,6 +39,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.URIResolver;
 
+import org.eclipse.wst.xsl.jaxp.debug.invoker.internal.ConcurrentProcessorInvoker;
 import org.eclipse.wst.xsl.jaxp.debug.invoker.internal.ConfigurationException;
 import org.eclipse.wst.xsl.jaxp.debug.invoker.internal.CreationException;
 import org.w3c.dom.Document;
@@ -43,14 +51,39 @@ import org.xml.sax.SAXException;
  * The definition of the transformation pipeline.
  * <p>
  * This class is loaded on both the Eclipse classpath and the transformation
- * process's classpath. The whole definition is serialized to an XML document by
- * the Eclipse launcher, and is then read by the transformation process when
- * launched.
+ * process's classpath. The whole definition is serialized by the Eclipse
+ * launcher, and is then read by the transformation process when launched.
+ * </p>
+ * <p>
+ * The launcher writes a compact binary descriptor (see
+ * <code>writeBinary</code>), whose values have been checked when written,
+ * so that the transformation process need not start an XML parser to read it.
+ * The XML form is still read, for launch files written by hand or by earlier
+ * versions.
  * </p>
  * 
  * @author Doug Satchwell
  */
 public class PipelineDefinition {
+	// "XSLP"
+	private static final int BINARY_MAGIC = 0x58534C50;
+	private static final int BINARY_VERSION = 1;
+
+	private static final int MAX_LOADED = 16;
+	// the last definition read from each of the most recently used launch
+	// files, by absolute path
+	private static final Map<String, LoadedDefinition> loaded = new LinkedHashMap<String, LoadedDefinition>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<String, LoadedDefinition> eldest) {
+			return size() > MAX_LOADED;
+		}
+	};
+	private static final Map<String, Class<?>> resolverClasses = new ConcurrentHashMap<String, Class<?>>();
+
 	private String sourceURL;
 	private String targetFile;
 
@@ -65,10 +98,11 @@ public class PipelineDefinition {
 	}
 
 	/**
-	 * Create a new instance of this by reading the specified XML file.
+	 * Create a new instance of this by reading the specified launch file, which
+	 * may be either a binary descriptor or an XML file.
 	 * 
 	 * @param launchFile
-	 *            the XSL file to load
+	 *            the launch file to load
 	 * @throws SAXException
 	 *             if problems occur during parsing
 	 * @throws IOException
@@ -78,8 +112,18 @@ public class PipelineDefinition {
 	 */
 	public PipelineDefinition(File launchFile) throws SAXException,
 			IOException, ParserConfigurationException {
-		this(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
-				new BufferedInputStream(new FileInputStream(launchFile))));
+		this(readFile(launchFile));
+	}
+
+	private PipelineDefinition(byte[] bytes) throws SAXException,
+			IOException, ParserConfigurationException {
+		InputStream in = new ByteArrayInputStream(bytes);
+		if (isBinary(bytes)) {
+			readBinary(new DataInputStream(in));
+		} else {
+			readXML(DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.parse(in));
+		}
 	}
 
 	/**
@@ -89,6 +133,65 @@ public class PipelineDefinition {
 	 *            the Document to create this from
 	 */
 	public PipelineDefinition(Document doc) {
+		readXML(doc);
+	}
+
+	/**
+	 * Get the definition in the specified launch file, which may be either a
+	 * binary descriptor or an XML file.
+	 * <p>
+	 * The definition read from each of the last few files is kept, and is
+	 * returned again for as long as the file's content does not change, so
+	 * that a process that runs the same launch many times reads it, and
+	 * creates its values, only once.
+	 * The definition returned is shared, and must not be modified.
+	 * </p>
+	 * 
+	 * @param launchFile
+	 *            the launch file to load
+	 * @return the definition
+	 * @throws SAXException
+	 *             if problems occur during parsing
+	 * @throws IOException
+	 *             if problems occur during parsing
+	 * @throws ParserConfigurationException
+	 *             if problems occur during parsing
+	 * @since 1.1
+	 */
+	public static PipelineDefinition load(File launchFile)
+			throws SAXException, IOException, ParserConfigurationException {
+		String key = launchFile.getAbsolutePath();
+		byte[] bytes = readFile(launchFile);
+		synchronized (loaded) {
+			LoadedDefinition previous = loaded.get(key);
+			if (previous != null && Arrays.equals(previous.bytes, bytes))
+				return previous.definition;
+		}
+		PipelineDefinition pdef = new PipelineDefinition(bytes);
+		synchronized (loaded) {
+			loaded.put(key, new LoadedDefinition(bytes, pdef));
+		}
+		return pdef;
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			byte[] bytes = new byte[(int) file.length()];
+			in.readFully(bytes);
+			return bytes;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static boolean isBinary(byte[] bytes) {
+		return bytes.length >= 4
+				&& ((bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16
+						| (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff)) == BINARY_MAGIC;
+	}
+
+	private void readXML(Document doc) {
 		Element rootEl = doc.getDocumentElement();
 
 		Element attributesEl = (Element) rootEl.getElementsByTagName(
@@ -153,6 +256,22 @@ public class PipelineDefinition {
 		}
 	}
 
+	/**
+	 * Compile this into a pipeline whose stages are connected by SAX events,
+	 * and whose intermediate output can be tapped.
+	 * 
+	 * @return the compiled pipeline
+	 * @throws ConfigurationException
+	 *             if an exception occurs during configuration
+	 * @since 1.1
+	 */
+	public StreamingPipeline newStreamingPipeline()
+			throws ConfigurationException {
+		ConcurrentProcessorInvoker invoker = new ConcurrentProcessorInvoker();
+		configure(invoker);
+		return new StreamingPipeline(invoker);
+	}
+
 	private void addStyleSheet(IProcessorInvoker invoker,
 			TransformDefinition tdef, Map<String, Object> params, URL url,
 			Properties properties, URIResolver resolver)
@@ -171,7 +290,12 @@ public class PipelineDefinition {
 
 		if (tdef.getResolverClass() != null) {
 			try {
-				Class resolverClass = Class.forName(tdef.getResolverClass());
+				Class<?> resolverClass = resolverClasses.get(tdef
+						.getResolverClass());
+				if (resolverClass == null) {
+					resolverClass = Class.forName(tdef.getResolverClass());
+					resolverClasses.put(tdef.getResolverClass(), resolverClass);
+				}
 				resolver = (URIResolver) resolverClass.newInstance();
 			} catch (InstantiationException e) {
 				
@@ -326,10 +450,157 @@ public class PipelineDefinition {
 		return doc;
 	}
 
+	/**
+	 * Serialize this to a binary descriptor, which can be read by
+	 * <code>PipelineDefinition(File)</code> much faster than the XML form.
+	 * <p>
+	 * The values of all types but <code>class</code> and <code>object</code>,
+	 * which can only be created on the transformation process's classpath,
+	 * are checked before anything is written.
+	 * </p>
+	 * 
+	 * @param out
+	 *            the stream to write to, which is not closed
+	 * @throws InvalidValueException
+	 *             if a value is invalid
+	 * @throws IOException
+	 *             if the descriptor could not be written
+	 * @since 1.1
+	 */
+	public void writeBinary(OutputStream out) throws IOException {
+		for (Iterator<TypedValue> iter = attributes.iterator(); iter.hasNext();) {
+			validate(iter.next(), Messages.getString("PipelineDefinition.12")); //$NON-NLS-1$
+		}
+		for (Iterator<TransformDefinition> iter = transformDefs.iterator(); iter
+				.hasNext();) {
+			TransformDefinition tdef = iter.next();
+			for (Iterator<TypedValue> params = tdef.getParameters().iterator(); params
+					.hasNext();) {
+				validate(params.next(), Messages.getString("PipelineDefinition.13")); //$NON-NLS-1$
+			}
+		}
+
+		DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(
+				out));
+		dout.writeInt(BINARY_MAGIC);
+		dout.writeInt(BINARY_VERSION);
+		writeValues(dout, attributes);
+		dout.writeBoolean(useEmbedded);
+		dout.writeInt(transformDefs.size());
+		for (Iterator<TransformDefinition> iter = transformDefs.iterator(); iter
+				.hasNext();) {
+			TransformDefinition tdef = iter.next();
+			writeString(dout, tdef.getStylesheetURL());
+			writeString(dout, tdef.getResolverClass());
+			Properties properties = tdef.getOutputProperties();
+			dout.writeInt(properties.size());
+			for (Iterator<Map.Entry<Object, Object>> props = properties
+					.entrySet().iterator(); props.hasNext();) {
+				Map.Entry<Object, Object> entry = props.next();
+				writeString(dout, (String) entry.getKey());
+				writeString(dout, (String) entry.getValue());
+			}
+			writeValues(dout, tdef.getParameters());
+		}
+		dout.flush();
+	}
+
+	private static void validate(TypedValue value, String kind)
+			throws InvalidValueException {
+		if (TypedValue.TYPE_CLASS.equals(value.type)
+				|| TypedValue.TYPE_OBJECT.equals(value.type))
+			return;
+		try {
+			value.createValue();
+		} catch (CreationException e) {
+			throw new InvalidValueException(kind + value.name
+					+ Messages.getString("PipelineDefinition.14") + value.type //$NON-NLS-1$
+					+ Messages.getString("PipelineDefinition.15") + e.getMessage(), //$NON-NLS-1$
+					value.name, value.type, e);
+		}
+	}
+
+	private void readBinary(DataInputStream in) throws IOException {
+		in.readInt();
+		int version = in.readInt();
+		if (version != BINARY_VERSION)
+			throw new IOException(Messages.getString("PipelineDefinition.11") + version); //$NON-NLS-1$
+		attributes.addAll(readValues(in));
+		useEmbedded = in.readBoolean();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			TransformDefinition tdef = new TransformDefinition();
+			tdef.setStylesheetURL(readString(in));
+			tdef.setResolverClass(readString(in));
+			int propertyCount = in.readInt();
+			for (int j = 0; j < propertyCount; j++) {
+				tdef.setOutputProperty(readString(in), readString(in));
+			}
+			for (Iterator<TypedValue> iter = readValues(in).iterator(); iter
+					.hasNext();) {
+				tdef.addParameter(iter.next());
+			}
+			addTransformDef(tdef);
+		}
+	}
+
+	private static void writeValues(DataOutputStream out, Set<TypedValue> values)
+			throws IOException {
+		out.writeInt(values.size());
+		for (Iterator<TypedValue> iter = values.iterator(); iter.hasNext();) {
+			TypedValue value = iter.next();
+			writeString(out, value.name);
+			writeString(out, value.type);
+			writeString(out, value.value);
+		}
+	}
+
+	private static List<TypedValue> readValues(DataInputStream in)
+			throws IOException {
+		int count = in.readInt();
+		List<TypedValue> values = new ArrayList<TypedValue>(count);
+		for (int i = 0; i < count; i++) {
+			values.add(new TypedValue(readString(in), readString(in),
+					readString(in)));
+		}
+		return values;
+	}
+
+	// writeUTF is limited to 64K, which a parameter value may well exceed
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = s.getBytes("UTF-8"); //$NON-NLS-1$
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8"); //$NON-NLS-1$
+	}
+
 	private static Document newDocument() throws ParserConfigurationException {
 		DocumentBuilderFactory dfactory = DocumentBuilderFactory.newInstance();
 		DocumentBuilder docBuilder = dfactory.newDocumentBuilder();
 		Document doc = docBuilder.newDocument();
 		return doc;
 	}
+
+	private static class LoadedDefinition {
+		final byte[] bytes;
+		final PipelineDefinition definition;
+
+		LoadedDefinition(byte[] bytes, PipelineDefinition definition) {
+			this.bytes = bytes;
+			this.definition = definition;
+		}
+	}
 }
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.invoker;
+
+import java.net.URL;
+import java.util.Arrays;
+
+import javax.xml.transform.Result;
+
+import org.eclipse.wst.xsl.jaxp.debug.invoker.internal.ConcurrentProcessorInvoker;
+import org.xml.sax.InputSource;
+
+/**
+ * A compiled <code>PipelineDefinition</code> whose stages are connected by SAX
+ * events, so that no intermediate result is serialized and parsed again.
+ * <p>
+ * The output of any stage can be inspected through a <code>Tap</code>, which
+ * receives a copy of the events the stage sends to the next one without
+ * interrupting the chain.
+ * </p>
+ * <p>
+ * The stylesheets are compiled once, when this is created, and this may then
+ * be used for any number of transformations, including several at once.
+ * </p>
+ *
+ * @see PipelineDefinition#newStreamingPipeline()
+ */
+public class StreamingPipeline {
+	private final ConcurrentProcessorInvoker invoker;
+
+	StreamingPipeline(ConcurrentProcessorInvoker invoker) {
+		this.invoker = invoker;
+	}
+
+	/**
+	 * Get the number of stages, which is the number of stylesheets in the
+	 * pipeline.
+	 *
+	 * @return the number of stages, or 0 if the pipeline uses the stylesheet
+	 *         embedded in each source document, which is then its only stage
+	 */
+	public int getStageCount() {
+		return invoker.getStageCount();
+	}
+
+	/**
+	 * Transform a source document through the pipeline.
+	 *
+	 * @param source
+	 *            the URL of the source document
+	 * @param result
+	 *            the result of the last stage
+	 * @param taps
+	 *            the taps on the output of stages, if any. They are finished
+	 *            when this returns, but may still be writing their output:
+	 *            see <code>Tap.await</code>
+	 * @throws TransformationException
+	 *             if the transformation failed
+	 */
+	public void transform(URL source, Result result, Tap... taps)
+			throws TransformationException {
+		invoker.transform(new InputSource(source.toExternalForm()), result,
+				Arrays.asList(taps));
+	}
+}
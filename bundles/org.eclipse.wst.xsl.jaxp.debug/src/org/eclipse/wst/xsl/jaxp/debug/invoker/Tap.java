@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.invoker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+
+/**
+ * A tap on the output of one stage of a <code>StreamingPipeline</code>.
+ * <p>
+ * The events that the stage sends to the next one are also serialized, and
+ * the serialized output is written to the tap's stream by a separate thread,
+ * so that a slow stream does not hold up the transformation until the tap's
+ * buffers are full. A capturing tap keeps all of the output; a sampling tap
+ * keeps only its beginning, and stops serializing once it has enough.
+ * </p>
+ * <p>
+ * A tap is used for one transformation. A failure of the tap does not fail
+ * the transformation; it is reported by <code>await</code>.
+ * </p>
+ */
+public class Tap {
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final int MAX_CHUNKS = 16;
+	// compared by identity, marks the end of the output
+	private static final byte[] END = new byte[0];
+
+	private final int stage;
+	private final OutputStream out;
+	private final long limit;
+	private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(
+			MAX_CHUNKS);
+	private Thread writer;
+	private ChunkOutputStream buffer;
+	private volatile boolean full;
+	private volatile Exception error;
+
+	private Tap(int stage, OutputStream out, long limit) {
+		this.stage = stage;
+		this.out = out;
+		this.limit = limit;
+	}
+
+	/**
+	 * Create a tap that captures all of the output of a stage.
+	 *
+	 * @param stage
+	 *            the index of the stage, from 0 for the first stylesheet
+	 * @param out
+	 *            the stream to write the output to, which is not closed
+	 * @return the tap
+	 */
+	public static Tap capture(int stage, OutputStream out) {
+		return new Tap(stage, out, -1);
+	}
+
+	/**
+	 * Create a tap that captures the beginning of the output of a stage. The
+	 * sample is cut at the given size, so it need not be well-formed.
+	 *
+	 * @param stage
+	 *            the index of the stage, from 0 for the first stylesheet
+	 * @param out
+	 *            the stream to write the output to, which is not closed
+	 * @param maxBytes
+	 *            the size of the sample
+	 * @return the tap
+	 */
+	public static Tap sample(int stage, OutputStream out, long maxBytes) {
+		return new Tap(stage, out, Math.max(0, maxBytes));
+	}
+
+	/**
+	 * Get the stage whose output is tapped.
+	 *
+	 * @return the index of the stage, from 0 for the first stylesheet
+	 */
+	public int getStage() {
+		return stage;
+	}
+
+	/**
+	 * Determine whether this has all the output it needs, so that the stage's
+	 * events need no longer be sent to it.
+	 *
+	 * @return true if a sample is complete, or the tap has failed
+	 */
+	public boolean isFull() {
+		return full;
+	}
+
+	/**
+	 * Wait until all of the captured output has been written.
+	 *
+	 * @throws IOException
+	 *             if the output could not be serialized or written
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public void await() throws IOException, InterruptedException {
+		Thread thread;
+		synchronized (this) {
+			thread = writer;
+		}
+		if (thread != null)
+			thread.join();
+		if (error instanceof IOException)
+			throw (IOException) error;
+		if (error != null) {
+			IOException e = new IOException(error.getMessage());
+			e.initCause(error);
+			throw e;
+		}
+	}
+
+	/**
+	 * Start the tap and get the handler for the stage's events.
+	 *
+	 * @noreference This method is not intended to be referenced by clients.
+	 *
+	 * @param factory
+	 *            the factory for the serializer
+	 * @return the handler, which is also a <code>LexicalHandler</code>
+	 * @throws TransformerConfigurationException
+	 *             if no serializer could be created
+	 */
+	public synchronized TransformerHandler open(SAXTransformerFactory factory)
+			throws TransformerConfigurationException {
+		if (writer != null)
+			throw new IllegalStateException();
+		TransformerHandler handler = factory.newTransformerHandler();
+		buffer = new ChunkOutputStream();
+		handler.setResult(new StreamResult(buffer));
+		writer = new Thread(new Runnable() {
+			public void run() {
+				write();
+			}
+		}, "Tap writer"); //$NON-NLS-1$
+		writer.setDaemon(true);
+		writer.start();
+		return handler;
+	}
+
+	/**
+	 * Record that the tap failed, and stop sending it events.
+	 *
+	 * @noreference This method is not intended to be referenced by clients.
+	 *
+	 * @param e
+	 *            the cause of the failure
+	 */
+	public void fail(Exception e) {
+		if (error == null)
+			error = e;
+		full = true;
+	}
+
+	/**
+	 * End the tap's output once the transformation has finished.
+	 *
+	 * @noreference This method is not intended to be referenced by clients.
+	 */
+	public synchronized void finish() {
+		if (buffer != null) {
+			buffer.close();
+			buffer = null;
+		}
+	}
+
+	private void write() {
+		byte[] chunk;
+		do {
+			try {
+				chunk = chunks.take();
+			} catch (InterruptedException e) {
+				fail(e);
+				return;
+			}
+			// after a failure, keep taking chunks so that the producer is not
+			// blocked
+			if (chunk != END && error == null) {
+				try {
+					out.write(chunk);
+				} catch (IOException e) {
+					fail(e);
+				}
+			}
+		} while (chunk != END);
+		try {
+			out.flush();
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void put(byte[] chunk) {
+		try {
+			// the writer has stopped taking chunks if it was interrupted
+			while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+				if (!writer.isAlive())
+					return;
+			}
+		} catch (InterruptedException e) {
+			fail(e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Hands the serialized output to the writer thread in chunks.
+	 */
+	private class ChunkOutputStream extends OutputStream {
+		private byte[] chunk = new byte[CHUNK_SIZE];
+		private int count;
+		private long total;
+		private boolean closed;
+
+		@Override
+		public void write(int b) {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			if (closed || full)
+				return;
+			if (limit >= 0 && total + len >= limit) {
+				len = (int) (limit - total);
+				full = true;
+			}
+			total += len;
+			while (len > 0) {
+				int n = Math.min(len, chunk.length - count);
+				System.arraycopy(b, off, chunk, count, n);
+				count += n;
+				off += n;
+				len -= n;
+				if (count == chunk.length)
+					putChunk();
+			}
+		}
+
+		@Override
+		public void close() {
+			if (closed)
+				return;
+			closed = true;
+			putChunk();
+			put(END);
+		}
+
+		private void putChunk() {
+			if (count == 0)
+				return;
+			byte[] filled;
+			if (count == chunk.length) {
+				filled = chunk;
+				chunk = new byte[CHUNK_SIZE];
+			} else {
+				filled = new byte[count];
+				System.arraycopy(chunk, 0, filled, 0, count);
+			}
+			count = 0;
+			if (error == null)
+				put(filled);
+		}
+	}
+}
@@ -31,6 +31,10 @@ public class TypedValue {
 	final String type;
 	final String value;
 
+	// the value once created, for the types whose values are immutable
+	private volatile Object createdValue;
+	private volatile Class<?> objectClass;
+
 	/**
 	 * Create a new instance of this from the given information.
 	 * 
@@ -49,12 +53,28 @@ public class TypedValue {
 
 	/**
 	 * Create the type of object defined by this.
+	 * <p>
+	 * Values are immutable for all types but <code>object</code>, so they are
+	 * created once and then reused. A new object is created each time for
+	 * the <code>object</code> type, but its class is only looked up once.
+	 * </p>
 	 * 
 	 * @return the value
 	 * @throws CreationException
 	 *             if a problem occurred
 	 */
 	public Object createValue() throws CreationException {
+		if (TYPE_OBJECT.equals(type))
+			return doCreateValue();
+		Object o = createdValue;
+		if (o == null) {
+			o = doCreateValue();
+			createdValue = o;
+		}
+		return o;
+	}
+
+	private Object doCreateValue() throws CreationException {
 		Object o = null;
 		if (TYPE_STRING.equals(type)) {
 			o = value;
@@ -91,7 +111,11 @@ public class TypedValue {
 			}
 		} else if (TYPE_OBJECT.equals(type)) {
 			try {
-				Class<?> c = Class.forName(value);
+				Class<?> c = objectClass;
+				if (c == null) {
+					c = Class.forName(value);
+					objectClass = c;
+				}
 				o = c.newInstance();
 			} catch (ClassNotFoundException e) {
 				throw new CreationException(
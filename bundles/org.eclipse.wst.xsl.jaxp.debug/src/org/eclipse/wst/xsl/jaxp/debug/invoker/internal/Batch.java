@@ -0,0 +1,441 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.invoker.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.wst.xsl.jaxp.debug.invoker.IProcessorInvoker;
+import org.eclipse.wst.xsl.jaxp.debug.invoker.PipelineDefinition;
+
+/**
+ * A batch of transformations through the same pipeline.
+ * <p>
+ * The inputs are either listed in a manifest file, one per line with an
+ * optional tab-separated target, or selected by a glob on the file names in
+ * a directory (such as <code>docs/*.xml</code>). Targets that are not given
+ * are named from an output pattern in which <code>*</code> stands for the
+ * input's name without its extension.
+ * </p>
+ * <p>
+ * Each input is transformed independently: a failure is recorded in the
+ * report and the remaining inputs are still transformed. Compiled stylesheets
+ * are shared through the <code>TemplatesCache</code>, so each stylesheet is
+ * only compiled once for the whole batch. With the JAXP invoker, inputs may
+ * be transformed on several threads at once.
+ * </p>
+ */
+public class Batch
+{
+	private static final Log log = LogFactory.getLog(Batch.class);
+	private static final String DEFAULT_PATTERN = "*.out"; //$NON-NLS-1$
+
+	private final List<Job> jobs;
+
+	/**
+	 * Create a batch of the given jobs.
+	 *
+	 * @param jobs the jobs, in the order they are reported
+	 */
+	public Batch(List<Job> jobs)
+	{
+		this.jobs = Collections.unmodifiableList(new ArrayList<Job>(jobs));
+	}
+
+	/**
+	 * Create a batch from a manifest file, or from a glob on the files in a directory.
+	 *
+	 * @param inputs the manifest file, a directory (for all its XML files), or a
+	 *            directory followed by a glob on file names
+	 * @param outputDir the directory for the targets
+	 * @param pattern the naming pattern for the targets, or null for the default
+	 * @return the batch
+	 * @throws IOException if the manifest cannot be read, the directory does not exist, or
+	 *             more than one input would be written to the same target
+	 */
+	public static Batch create(String inputs, File outputDir, String pattern) throws IOException
+	{
+		if (pattern == null)
+			pattern = DEFAULT_PATTERN;
+		File file = new File(inputs);
+		Batch batch;
+		if (file.isFile())
+			batch = fromManifest(file, outputDir, pattern);
+		else if (file.isDirectory())
+			batch = fromGlob(file, "*.xml", outputDir, pattern); //$NON-NLS-1$
+		else
+		{
+			File dir = file.getAbsoluteFile().getParentFile();
+			if (dir == null || !dir.isDirectory())
+				throw new IOException(Messages.getString("Batch.0") + inputs); //$NON-NLS-1$
+			batch = fromGlob(dir, file.getName(), outputDir, pattern);
+		}
+		batch.checkTargets();
+		return batch;
+	}
+
+	private void checkTargets() throws IOException
+	{
+		// jobs with the same target would overwrite each other, or write it at the same time
+		Map<File, Job> targets = new HashMap<File, Job>();
+		for (Job job : jobs)
+		{
+			Job other = targets.put(job.target.getAbsoluteFile(), job);
+			if (other != null)
+				throw new IOException(Messages.getString("Batch.2") + job.target + " (" + other.source + ", " + job.source + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+
+	private static Batch fromManifest(File manifest, File outputDir, String pattern) throws IOException
+	{
+		List<Job> jobs = new ArrayList<Job>();
+		File base = manifest.getAbsoluteFile().getParentFile();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), "UTF-8")); //$NON-NLS-1$
+		try
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) //$NON-NLS-1$
+					continue;
+				int tab = line.indexOf('\t');
+				String source = tab < 0 ? line : line.substring(0, tab).trim();
+				URL url = toURL(source, base);
+				File target;
+				if (tab < 0)
+					target = new File(outputDir, targetName(url, pattern));
+				else
+				{
+					target = new File(line.substring(tab + 1).trim());
+					if (!target.isAbsolute())
+						target = new File(outputDir, target.getPath());
+				}
+				jobs.add(new Job(url, target));
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return new Batch(jobs);
+	}
+
+	private static Batch fromGlob(File dir, String glob, File outputDir, String pattern) throws IOException
+	{
+		Pattern regex = toRegex(glob);
+		File[] files = dir.listFiles();
+		if (files == null)
+			throw new IOException(Messages.getString("Batch.0") + dir); //$NON-NLS-1$
+		// a stable order, so that reports can be compared between runs
+		Arrays.sort(files);
+		List<Job> jobs = new ArrayList<Job>();
+		for (int i = 0; i < files.length; i++)
+		{
+			File file = files[i];
+			if (file.isFile() && regex.matcher(file.getName()).matches())
+			{
+				URL url = file.toURI().toURL();
+				jobs.add(new Job(url, new File(outputDir, targetName(url, pattern))));
+			}
+		}
+		return new Batch(jobs);
+	}
+
+	private static URL toURL(String source, File base) throws MalformedURLException
+	{
+		// anything with a scheme of two or more letters is taken to be a URL
+		int colon = source.indexOf(':');
+		if (colon > 1 && source.substring(0, colon).matches("[A-Za-z][A-Za-z0-9+.-]*")) //$NON-NLS-1$
+			return new URL(source);
+		File file = new File(source);
+		if (!file.isAbsolute())
+			file = new File(base, source);
+		return file.toURI().toURL();
+	}
+
+	private static String targetName(URL source, String pattern)
+	{
+		String name;
+		try
+		{
+			// decoded, so that a b.xml is not named a%20b
+			name = source.toURI().getPath();
+		}
+		catch (URISyntaxException e)
+		{
+			name = null;
+		}
+		if (name == null)
+			name = source.getPath();
+		name = name.substring(name.lastIndexOf('/') + 1);
+		int dot = name.lastIndexOf('.');
+		if (dot > 0)
+			name = name.substring(0, dot);
+		return pattern.replace("*", name); //$NON-NLS-1$
+	}
+
+	private static Pattern toRegex(String glob)
+	{
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < glob.length(); i++)
+		{
+			char c = glob.charAt(i);
+			if (c == '*')
+				sb.append(".*"); //$NON-NLS-1$
+			else if (c == '?')
+				sb.append('.');
+			else
+				sb.append(Pattern.quote(String.valueOf(c)));
+		}
+		return Pattern.compile(sb.toString());
+	}
+
+	/**
+	 * Get the jobs of this batch.
+	 *
+	 * @return an unmodifiable list of jobs
+	 */
+	public List<Job> getJobs()
+	{
+		return jobs;
+	}
+
+	/**
+	 * Transform every input of this batch in turn. A new invoker is configured from the
+	 * pipeline for each input, as an invoker's handler chain can only be used once.
+	 *
+	 * @param invokerClassName the class name of the <code>IProcessorInvoker</code> to use
+	 * @param pipeline the pipeline
+	 * @return the number of inputs that failed
+	 */
+	public int run(String invokerClassName, PipelineDefinition pipeline)
+	{
+		for (Job job : jobs)
+		{
+			try
+			{
+				IProcessorInvoker invoker = (IProcessorInvoker) Class.forName(invokerClassName).newInstance();
+				pipeline.configure(invoker);
+				job.run(invoker);
+			}
+			catch (Throwable t)
+			{
+				job.error = t;
+			}
+		}
+		return report();
+	}
+
+	/**
+	 * Transform the inputs of this batch on the given number of threads, through a single
+	 * <code>ConcurrentProcessorInvoker</code> configured once from the pipeline. The
+	 * outcome of each input does not depend on the others, and is reported in the order
+	 * of the inputs.
+	 *
+	 * @param pipeline the pipeline
+	 * @param threads the number of threads
+	 * @return the number of inputs that failed
+	 * @throws ConfigurationException if the pipeline could not be configured
+	 */
+	public int run(PipelineDefinition pipeline, int threads) throws ConfigurationException
+	{
+		final ConcurrentProcessorInvoker invoker = new ConcurrentProcessorInvoker();
+		pipeline.configure(invoker);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			List<Future<?>> futures = new ArrayList<Future<?>>(jobs.size());
+			for (final Job job : jobs)
+			{
+				futures.add(executor.submit(new Runnable()
+				{
+					public void run()
+					{
+						try
+						{
+							job.run(invoker);
+						}
+						catch (Throwable t)
+						{
+							job.error = t;
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+			{
+				boolean interrupted = false;
+				while (true)
+				{
+					try
+					{
+						future.get();
+						break;
+					}
+					catch (InterruptedException e)
+					{
+						interrupted = true;
+					}
+					catch (ExecutionException e)
+					{
+						// cannot happen, each job catches its own errors
+						break;
+					}
+				}
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		return report();
+	}
+
+	private int report()
+	{
+		int failed = 0;
+		for (Job job : jobs)
+		{
+			if (job.error != null)
+			{
+				failed++;
+				log.error(Messages.getString("Batch.1") + job.source, job.error); //$NON-NLS-1$
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Write the outcome of every job to the given file, one line per input.
+	 *
+	 * @param report the report file
+	 * @throws IOException if the report cannot be written
+	 */
+	public void writeReport(File report) throws IOException
+	{
+		PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(report), "UTF-8")); //$NON-NLS-1$
+		try
+		{
+			for (Job job : jobs)
+			{
+				if (job.error == null)
+					pw.println("OK\t" + job.source + "\t" + job.target); //$NON-NLS-1$ //$NON-NLS-2$
+				else
+					pw.println("FAILED\t" + job.source + "\t" + job.error.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		finally
+		{
+			pw.close();
+		}
+	}
+
+	/**
+	 * One input of a batch and its target.
+	 */
+	public static class Job
+	{
+		final URL source;
+		final File target;
+		volatile Throwable error;
+
+		/**
+		 * Create a job.
+		 *
+		 * @param source the URL of the source document
+		 * @param target the file where output will be written
+		 */
+		public Job(URL source, File target)
+		{
+			this.source = source;
+			this.target = target;
+		}
+
+		void run(IProcessorInvoker invoker) throws Exception
+		{
+			File dir = target.getAbsoluteFile().getParentFile();
+			if (dir != null)
+				dir.mkdirs();
+			OutputStream os = Main.openTarget(target);
+			boolean done = false;
+			try
+			{
+				invoker.transform(source, new StreamResult(os));
+				done = true;
+			}
+			finally
+			{
+				os.close();
+				// do not leave partial output behind
+				if (!done)
+					target.delete();
+			}
+		}
+
+		/**
+		 * Get the URL of the source document.
+		 *
+		 * @return the source URL
+		 */
+		public URL getSource()
+		{
+			return source;
+		}
+
+		/**
+		 * Get the file where output is written.
+		 *
+		 * @return the target file
+		 */
+		public File getTarget()
+		{
+			return target;
+		}
+
+		/**
+		 * Get the error that caused this job to fail.
+		 *
+		 * @return the error, or null if the job has not failed
+		 */
+		public Throwable getError()
+		{
+			return error;
+		}
+	}
+}
@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.invoker.internal;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.wst.xsl.jaxp.debug.invoker.IProcessorInvoker;
+import org.eclipse.wst.xsl.jaxp.debug.invoker.Tap;
+import org.eclipse.wst.xsl.jaxp.debug.invoker.TransformationException;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * A JAXP <code>IProcessorInvoker</code> that, once configured, can run any number of
+ * transformations, including several at the same time.
+ * <p>
+ * The pipeline is configured once, by <code>setAttributes</code> and
+ * <code>addStylesheet</code>, before any transformation is started. The compiled
+ * stylesheets are then shared by all threads, while each thread has its own factory and
+ * reader, and each transformation its own chain of <code>TransformerHandler</code>s.
+ * </p>
+ */
+public class ConcurrentProcessorInvoker implements IProcessorInvoker
+{
+	private static final Log log = LogFactory.getLog(ConcurrentProcessorInvoker.class);
+
+	private final List<Stage> stages = new ArrayList<Stage>();
+	private Map<?, ?> attributes = Collections.emptyMap();
+
+	private final ThreadLocal<SAXTransformerFactory> factories = new ThreadLocal<SAXTransformerFactory>()
+	{
+		@Override
+		protected SAXTransformerFactory initialValue()
+		{
+			SAXTransformerFactory tFactory = (SAXTransformerFactory) TransformerFactory.newInstance();
+			tFactory.setErrorListener(JAXPSAXProcessorInvoker.ERROR_LISTENER);
+			for (Map.Entry<?, ?> entry : attributes.entrySet())
+			{
+				tFactory.setAttribute((String) entry.getKey(), entry.getValue());
+			}
+			return tFactory;
+		}
+	};
+
+	private final ThreadLocal<XMLReader> readers = new ThreadLocal<XMLReader>();
+
+	public void setAttributes(Map<?, ?> attributes)
+	{
+		for (Map.Entry<?, ?> entry : attributes.entrySet())
+		{
+			log.info(Messages.getString("JAXPSAXProcessorInvoker.0") + entry.getKey() + Messages.getString("JAXPSAXProcessorInvoker.1") + entry.getValue()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.attributes = new HashMap<Object, Object>(attributes);
+		// factories created before now have the old attributes
+		factories.remove();
+	}
+
+	public void addStylesheet(URL stylesheet, Map<?, ?> parameters, Properties outputProperties, URIResolver resolver) throws TransformerConfigurationException
+	{
+		Templates templates = getTemplates(new SAXSource(new InputSource(stylesheet.toString())));
+		if (parameters != null)
+		{
+			for (Map.Entry<?, ?> entry : parameters.entrySet())
+			{
+				log.info(Messages.getString("JAXPSAXProcessorInvoker.2") + entry.getKey() + Messages.getString("JAXPSAXProcessorInvoker.3") + entry.getValue()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		if (outputProperties != null && outputProperties.size() > 0)
+			log.info(Messages.getString("JAXPSAXProcessorInvoker.6") + outputProperties); //$NON-NLS-1$
+		stages.add(new Stage(templates, parameters, outputProperties, resolver));
+	}
+
+	public void transform(URL sourceURL, Result res) throws TransformationException
+	{
+		transform(new InputSource(sourceURL.toExternalForm()), res);
+	}
+
+	/**
+	 * Transform using an InputSource rather than a URL. This may be called by several
+	 * threads at once.
+	 *
+	 * @param inputsource the InputSource to use
+	 * @param res the Result
+	 * @throws TransformationException if an error occurred during transformation
+	 */
+	public void transform(InputSource inputsource, Result res) throws TransformationException
+	{
+		transform(inputsource, res, Collections.<Tap> emptyList());
+	}
+
+	/**
+	 * Transform using an InputSource, sending the output of some of the stages to taps
+	 * as well as to the next stage. This may be called by several threads at once, with
+	 * different taps.
+	 *
+	 * @param inputsource the InputSource to use
+	 * @param res the Result
+	 * @param taps the taps, which are finished when the transformation ends
+	 * @throws TransformationException if an error occurred during transformation, or a
+	 *             tap is on a stage that does not exist
+	 */
+	public void transform(InputSource inputsource, Result res, List<Tap> taps) throws TransformationException
+	{
+		try
+		{
+			List<Stage> pipeline = stages;
+			if (pipeline.isEmpty())
+			{// no stylesheets have been added, so try to use embedded...
+				Source src = getFactory().getAssociatedStylesheet(new SAXSource(inputsource), null, null, null);
+				if (src == null)
+					throw new TransformationException(Messages.getString("JAXPSAXProcessorInvoker.7") + inputsource.getSystemId()); //$NON-NLS-1$
+				pipeline = Collections.singletonList(new Stage(getTemplates(src), null, null, null));
+			}
+			for (Tap tap : taps)
+			{
+				if (tap.getStage() < 0 || tap.getStage() >= pipeline.size())
+					throw new TransformationException(Messages.getString("ConcurrentProcessorInvoker.0") + tap.getStage()); //$NON-NLS-1$
+			}
+			// build this transformation's handler chain, last stage first
+			TransformerHandler first = null;
+			Result result = res;
+			for (int i = pipeline.size() - 1; i >= 0; i--)
+			{
+				first = pipeline.get(i).newTransformerHandler(getFactory());
+				first.setResult(tee(result, first, i, taps));
+				result = new SAXResult(first);
+			}
+			XMLReader reader = getReader();
+			reader.setContentHandler(first);
+			try
+			{
+				reader.setProperty("http://xml.org/sax/properties/lexical-handler", first); //$NON-NLS-1$
+			}
+			catch (SAXException e)
+			{
+				log.warn(Messages.getString("JAXPSAXProcessorInvoker_4")); //$NON-NLS-1$
+			}
+			reader.parse(inputsource);
+		}
+		catch (TransformationException e)
+		{
+			throw e;
+		}
+		catch (Exception e)
+		{
+			throw new TransformationException(e.getMessage(), e);
+		}
+		finally
+		{
+			for (Tap tap : taps)
+			{
+				tap.finish();
+			}
+		}
+	}
+
+	/**
+	 * Get the result for the given stage, which is the given result unless the stage is
+	 * tapped.
+	 */
+	private Result tee(Result result, TransformerHandler handler, int stage, List<Tap> taps) throws TransformerConfigurationException
+	{
+		List<Tap> stageTaps = new ArrayList<Tap>();
+		List<TransformerHandler> handlers = new ArrayList<TransformerHandler>();
+		for (Tap tap : taps)
+		{
+			if (tap.getStage() == stage)
+			{
+				stageTaps.add(tap);
+				handlers.add(tap.open(getFactory()));
+			}
+		}
+		if (stageTaps.isEmpty())
+			return result;
+		ContentHandler next;
+		if (result instanceof SAXResult)
+			next = ((SAXResult) result).getHandler();
+		else
+		{
+			// serialize the final result with an identity transformation, as the stage would
+			TransformerHandler identity = getFactory().newTransformerHandler();
+			identity.getTransformer().setOutputProperties(handler.getTransformer().getOutputProperties());
+			identity.setResult(result);
+			next = identity;
+		}
+		TeeHandler tee = new TeeHandler(next, stageTaps, handlers);
+		SAXResult teeResult = new SAXResult(tee);
+		teeResult.setLexicalHandler(tee);
+		return teeResult;
+	}
+
+	/**
+	 * Get the number of stylesheets in the pipeline.
+	 *
+	 * @return the number of stylesheets, or 0 if the pipeline uses the stylesheet
+	 *         embedded in each source document
+	 */
+	public int getStageCount()
+	{
+		return stages.size();
+	}
+
+	private Templates getTemplates(Source source) throws TransformerConfigurationException
+	{
+		SAXTransformerFactory tFactory = getFactory();
+		if (source.getSystemId() == null)
+			return tFactory.newTemplates(source);
+		return TemplatesCache.getInstance().getTemplates(tFactory, attributes, source);
+	}
+
+	private SAXTransformerFactory getFactory()
+	{
+		return factories.get();
+	}
+
+	private XMLReader getReader() throws Exception
+	{
+		XMLReader reader = readers.get();
+		if (reader == null)
+		{
+			SAXParserFactory spf = SAXParserFactory.newInstance();
+			spf.setNamespaceAware(true);
+			reader = spf.newSAXParser().getXMLReader();
+			readers.set(reader);
+		}
+		return reader;
+	}
+
+	/**
+	 * A compiled stylesheet of the pipeline, with the settings applied to each of its
+	 * transformers.
+	 */
+	private static class Stage
+	{
+		final Templates templates;
+		final Map<?, ?> parameters;
+		final Properties outputProperties;
+		final URIResolver resolver;
+
+		Stage(Templates templates, Map<?, ?> parameters, Properties outputProperties, URIResolver resolver)
+		{
+			this.templates = templates;
+			this.parameters = parameters == null ? Collections.emptyMap() : new HashMap<Object, Object>(parameters);
+			this.outputProperties = outputProperties == null ? null : (Properties) outputProperties.clone();
+			this.resolver = resolver;
+		}
+
+		TransformerHandler newTransformerHandler(SAXTransformerFactory tFactory) throws TransformerConfigurationException
+		{
+			TransformerHandler th = tFactory.newTransformerHandler(templates);
+			Transformer transformer = th.getTransformer();
+			if (resolver != null)
+				transformer.setURIResolver(resolver);
+			for (Map.Entry<?, ?> entry : parameters.entrySet())
+			{
+				transformer.setParameter((String) entry.getKey(), entry.getValue());
+			}
+			if (outputProperties != null && outputProperties.size() > 0)
+				transformer.setOutputProperties(outputProperties);
+			return th;
+		}
+	}
+}
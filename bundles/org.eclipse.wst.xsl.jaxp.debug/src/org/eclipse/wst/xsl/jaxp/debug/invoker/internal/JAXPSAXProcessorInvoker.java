@@ -13,7 +13,7 @@ package org.eclipse.wst.xsl.jaxp.debug.invoker.internal;
 
 import java.net.URL;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
@@ -22,6 +22,7 @@ import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -37,11 +38,13 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.eclipse.wst.xsl.jaxp.debug.invoker.IProcessorInvoker;
 import org.eclipse.wst.xsl.jaxp.debug.invoker.TransformationException;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
 
 /**
  * An implementation of <code>IProcessorInvoker</code> that uses JAXP as the underlying
@@ -53,9 +56,35 @@ public class JAXPSAXProcessorInvoker implements IProcessorInvoker
 {
 	private static final Log log = LogFactory.getLog(JAXPSAXProcessorInvoker.class);
 
+	/**
+	 * Logs warnings and errors, and stops on fatal errors.
+	 */
+	static final ErrorListener ERROR_LISTENER = new ErrorListener()
+	{
+
+		public void error(TransformerException exception) throws TransformerException
+		{
+			log.error(exception.getMessageAndLocation());
+		}
+
+		public void fatalError(TransformerException exception) throws TransformerException
+		{
+			log.error(exception.getMessageAndLocation(), exception);
+			throw exception;
+		}
+
+		public void warning(TransformerException exception) throws TransformerException
+		{
+			log.warn(exception.getMessageAndLocation());
+		}
+
+	};
+
 	private XMLReader reader;
 	private SAXTransformerFactory tFactory;
 	private TransformerHandler th;
+	private Map<?, ?> attributes = Collections.emptyMap();
+	private PipelineStatistics statistics;
 
 	/**
 	 * Create a new instance of this.
@@ -75,12 +104,12 @@ public class JAXPSAXProcessorInvoker implements IProcessorInvoker
 		return spf.newSAXParser().getXMLReader();
 	}
 
-	public void setAttributes(Map attributes) throws TransformerFactoryConfigurationError
+	public void setAttributes(Map<?, ?> attributes) throws TransformerFactoryConfigurationError
 	{
 		createTransformerFactory();
-		for (Iterator iter = attributes.entrySet().iterator(); iter.hasNext();)
+		this.attributes = new HashMap<Object, Object>(attributes);
+		for (Map.Entry<?, ?> entry : attributes.entrySet())
 		{
-			Map.Entry entry = (Map.Entry) iter.next();
 			String uri = (String) entry.getKey();
 			Object value = entry.getValue();
 			log.info(Messages.getString("JAXPSAXProcessorInvoker.0") + uri + Messages.getString("JAXPSAXProcessorInvoker.1") + value); //$NON-NLS-1$ //$NON-NLS-2$
@@ -91,30 +120,22 @@ public class JAXPSAXProcessorInvoker implements IProcessorInvoker
 	protected TransformerFactory createTransformerFactory()
 	{
 		tFactory = (SAXTransformerFactory) TransformerFactory.newInstance();
-		tFactory.setErrorListener(new ErrorListener()
-		{
-
-			public void error(TransformerException exception) throws TransformerException
-			{
-				log.error(exception.getMessageAndLocation());
-			}
-
-			public void fatalError(TransformerException exception) throws TransformerException
-			{
-				log.error(exception.getMessageAndLocation(), exception);
-				throw exception;
-			}
-
-			public void warning(TransformerException exception) throws TransformerException
-			{
-				log.warn(exception.getMessageAndLocation());
-			}
-
-		});
+		tFactory.setErrorListener(ERROR_LISTENER);
 		return tFactory;
 	}
 
-	public void addStylesheet(URL stylesheet, Map parameters, Properties outputProperties, URIResolver resolver) throws TransformerConfigurationException
+	/**
+	 * Record statistics on each stage of the pipeline. This must be called before any
+	 * stylesheet is added.
+	 * 
+	 * @param statistics the statistics to record into, or null to stop recording
+	 */
+	public void setStatistics(PipelineStatistics statistics)
+	{
+		this.statistics = statistics;
+	}
+
+	public void addStylesheet(URL stylesheet, Map<?, ?> parameters, Properties outputProperties, URIResolver resolver) throws TransformerConfigurationException
 	{
 		InputSource inputsource = new InputSource(stylesheet.toString());
 
@@ -129,22 +150,27 @@ public class JAXPSAXProcessorInvoker implements IProcessorInvoker
 
 	}
 
-	protected Transformer addStylesheet(Source source, URIResolver resolver, Map parameters, Properties outputProperties) throws TransformerConfigurationException
+	protected Transformer addStylesheet(Source source, URIResolver resolver, Map<?, ?> parameters, Properties outputProperties) throws TransformerConfigurationException
 	{
 		if (tFactory == null)
 			createTransformerFactory();
 
-		TransformerHandler newTh = tFactory.newTransformerHandler(source);
+		long start = System.nanoTime();
+		Templates templates = getTemplates(source);
+		long compileTime = System.nanoTime() - start;
+		TransformerHandler newTh = tFactory.newTransformerHandler(templates);
 		Transformer transformer = newTh.getTransformer();
+		ContentHandler input = newTh;
+		if (statistics != null)
+			input = statistics.instrument(statistics.stageAdded(source.getSystemId(), compileTime), newTh);
 
 		if (resolver != null)
 			transformer.setURIResolver(resolver);
 
 		if (parameters != null)
 		{
-			for (Iterator iter = parameters.entrySet().iterator(); iter.hasNext();)
+			for (Map.Entry<?, ?> entry : parameters.entrySet())
 			{
-				Map.Entry entry = (Map.Entry) iter.next();
 				String name = (String) entry.getKey();
 				Object value = entry.getValue();
 				log.info(Messages.getString("JAXPSAXProcessorInvoker.2") + name + Messages.getString("JAXPSAXProcessorInvoker.3") + value); //$NON-NLS-1$ //$NON-NLS-2$
@@ -154,9 +180,8 @@ public class JAXPSAXProcessorInvoker implements IProcessorInvoker
 		if (outputProperties != null)
 		{
 			StringBuffer sb = new StringBuffer();
-			for (Iterator iter = outputProperties.entrySet().iterator(); iter.hasNext();)
+			for (Map.Entry<?, ?> entry : outputProperties.entrySet())
 			{
-				Map.Entry entry = (Map.Entry) iter.next();
 				sb.append(entry.getKey()).append("=").append(entry.getValue()).append(" "); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 			if (outputProperties.size() > 0)
@@ -167,11 +192,11 @@ public class JAXPSAXProcessorInvoker implements IProcessorInvoker
 		}
 
 		if (th != null)
-			th.setResult(new SAXResult(newTh));
+			th.setResult(newSAXResult(input));
 		else {
-			reader.setContentHandler(newTh);
+			reader.setContentHandler(input);
 			try {
-				reader.setProperty("http://xml.org/sax/properties/lexical-handler", newTh); //$NON-NLS-1$
+				reader.setProperty("http://xml.org/sax/properties/lexical-handler", input); //$NON-NLS-1$
 			} catch (SAXNotRecognizedException ex) {
 				log.warn(Messages.getString("JAXPSAXProcessorInvoker_4")); //$NON-NLS-1$
 			} catch (SAXNotSupportedException e) {
@@ -182,6 +207,41 @@ public class JAXPSAXProcessorInvoker implements IProcessorInvoker
 		return th.getTransformer();
 	}
 
+	private static SAXResult newSAXResult(ContentHandler handler)
+	{
+		SAXResult result = new SAXResult(handler);
+		if (handler instanceof LexicalHandler)
+			result.setLexicalHandler((LexicalHandler) handler);
+		return result;
+	}
+
+	/**
+	 * Get the compiled form of the given stylesheet. Stylesheets with a system identifier
+	 * are compiled once and then taken from the shared <code>TemplatesCache</code> for as
+	 * long as none of their modules changes.
+	 * 
+	 * @param source the stylesheet
+	 * @return the compiled stylesheet
+	 * @throws TransformerConfigurationException if the stylesheet could not be compiled
+	 */
+	protected Templates getTemplates(Source source) throws TransformerConfigurationException
+	{
+		if (!isTemplatesCacheEnabled() || source.getSystemId() == null)
+			return tFactory.newTemplates(source);
+		return TemplatesCache.getInstance().getTemplates(tFactory, attributes, source);
+	}
+
+	/**
+	 * Whether compiled stylesheets may be shared through the <code>TemplatesCache</code>.
+	 * Subclasses that instrument the compilation, such as debuggers, should return false.
+	 * 
+	 * @return true if the cache is used
+	 */
+	protected boolean isTemplatesCacheEnabled()
+	{
+		return true;
+	}
+
 	public void transform(URL sourceURL, Result res) throws TransformationException
 	{
 		transform(new InputSource(sourceURL.toExternalForm()), res);
@@ -213,7 +273,18 @@ public class JAXPSAXProcessorInvoker implements IProcessorInvoker
 					throw new TransformationException(Messages.getString("JAXPSAXProcessorInvoker.7") + inputsource.getSystemId()); //$NON-NLS-1$
 				}
 			}
-			th.setResult(res);
+			if (statistics == null)
+				th.setResult(res);
+			else
+			{
+				// count the output of the last stage on its way to an identity transformation
+				// that serializes it as the stage would
+				TransformerHandler identity = tFactory.newTransformerHandler();
+				identity.getTransformer().setOutputProperties(th.getTransformer().getOutputProperties());
+				identity.setResult(res);
+				th.setResult(newSAXResult(statistics.instrumentOutput(identity)));
+				statistics.transformStarted(inputsource.getSystemId());
+			}
 			log.info(Messages.getString("JAXPSAXProcessorInvoker.8")); //$NON-NLS-1$
 			reader.parse(inputsource);
 			log.info(Messages.getString("JAXPSAXProcessorInvoker.9")); //$NON-NLS-1$
@@ -222,5 +293,10 @@ public class JAXPSAXProcessorInvoker implements IProcessorInvoker
 		{
 			throw new TransformationException(e.getMessage(), e);
 		}
+		finally
+		{
+			if (statistics != null)
+				statistics.transformEnded();
+		}
 	}
 }
@@ -10,8 +10,11 @@
  *******************************************************************************/
 package org.eclipse.wst.xsl.jaxp.debug.invoker.internal;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 
 import javax.xml.transform.stream.StreamResult;
@@ -30,6 +33,14 @@ import org.eclipse.wst.xsl.jaxp.debug.invoker.PipelineDefinition;
 public class Main
 {
 	private static final Log log = LogFactory.getLog(Main.class);
+	private static final String BATCH = "-batch"; //$NON-NLS-1$
+	private static final String THREADS = "-threads"; //$NON-NLS-1$
+	private static final String WORKER = "-worker"; //$NON-NLS-1$
+	private static final String PROFILE = "-profile"; //$NON-NLS-1$
+	private static final String STATISTICS = ".stats"; //$NON-NLS-1$
+	private static final String REPORT = "batch-report.txt"; //$NON-NLS-1$
+	// serializers write a few bytes at a time
+	private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
 
 	/**
 	 * The <code>main</code> method called when launching the transformation process.
@@ -40,6 +51,35 @@ public class Main
 	 * <li>The URL of the source XML document
 	 * <li>The file where output will be written
 	 * </ol>
+	 * <p>
+	 * They may be followed by <code>-worker</code> and a state directory, in which case the
+	 * transformation is run by a <code>TransformWorker</code> that stays alive between
+	 * launches, and is started if needed with the class path and settings of this process.
+	 * </p>
+	 * <p>
+	 * They may also be followed by <code>-profile</code>, in which case statistics on each
+	 * stage of the pipeline are logged, and written next to the output file as
+	 * <code><i>output</i>.stats.json</code> and <code><i>output</i>.stats.csv</code>. This
+	 * only applies to the JAXP invoker, and the transformation is then run in this process.
+	 * </p>
+	 * <p>
+	 * In batch mode, the third argument is <code>-batch</code> and is followed by:
+	 * </p>
+	 * <ol>
+	 * <li>The inputs: a manifest file, a directory, or a directory and a glob on file names
+	 * (see <code>Batch</code>)
+	 * <li>The directory where output will be written
+	 * <li>Optionally, the pattern for naming outputs, where <code>*</code> is the input name
+	 * without its extension
+	 * <li>Optionally, <code>-threads</code> followed by the number of inputs to transform at
+	 * once, by default the number of processors. This only applies to the JAXP invoker;
+	 * other invokers transform one input at a time.
+	 * </ol>
+	 * <p>
+	 * The pipeline is configured once for the whole batch. A failed input does not stop the
+	 * batch; the outcome of every input is written to <code>batch-report.txt</code> in the
+	 * output directory.
+	 * </p>
 	 * 
 	 * @param args the 4 required arguments
 	 */
@@ -55,6 +95,35 @@ public class Main
 
 		log.info(Messages.getString("Main.4") + launchFile); //$NON-NLS-1$
 
+		if (BATCH.equals(src))
+		{
+			runBatch(invokerClassName, launchFile, args);
+			return;
+		}
+		File workerDir = null;
+		boolean profile = false;
+		for (int i = 4; i < args.length; i++)
+		{
+			if (WORKER.equals(args[i]) && i + 1 < args.length)
+				workerDir = new File(args[++i]);
+			else if (PROFILE.equals(args[i]))
+				profile = true;
+		}
+		// statistics are only recorded in this process
+		if (workerDir != null && !profile)
+		{
+			log.info(Messages.getString("Main.8")); //$NON-NLS-1$
+			try
+			{
+				TransformWorker.submit(workerDir, invokerClassName, launchFile, src, new File(target));
+			}
+			catch (Exception e)
+			{
+				handleFatalError(e.getMessage(), e);
+			}
+			return;
+		}
+
 		// create the invoker
 		IProcessorInvoker invoker = null;
 		try
@@ -66,16 +135,107 @@ public class Main
 		{
 			handleFatalError(Messages.getString("Main.5") + invokerClassName, e); //$NON-NLS-1$
 		}
+		PipelineStatistics statistics = null;
+		if (profile && invoker instanceof JAXPSAXProcessorInvoker)
+		{
+			statistics = new PipelineStatistics();
+			((JAXPSAXProcessorInvoker) invoker).setStatistics(statistics);
+		}
 		try
 		{
 			PipelineDefinition pipeline = new PipelineDefinition(launchFile);
 			pipeline.configure(invoker);
-			invoker.transform(new URL(src), new StreamResult(new FileOutputStream(new File(target))));
+			File targetFile = new File(target);
+			OutputStream os = openTarget(targetFile);
+			try
+			{
+				invoker.transform(new URL(src), new StreamResult(os));
+			}
+			finally
+			{
+				os.close();
+			}
+			if (statistics != null)
+			{
+				statistics.setBytesOut(targetFile.length());
+				statistics.log();
+				statistics.writeJSON(new File(target + STATISTICS + ".json")); //$NON-NLS-1$
+				statistics.writeCSV(new File(target + STATISTICS + ".csv")); //$NON-NLS-1$
+			}
+		}
+		catch (Exception e)
+		{
+			handleFatalError(e.getMessage(), e);
+		}
+	}
+
+	private static void runBatch(String invokerClassName, File launchFile, String[] args)
+	{
+		if (args.length < 5)
+		{
+			handleFatalError(Messages.getString("Main.9"), null); //$NON-NLS-1$
+			return;
+		}
+		File outputDir = new File(args[4]);
+		String pattern = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 5; i < args.length; i++)
+		{
+			if (THREADS.equals(args[i]) && i + 1 < args.length)
+			{
+				try
+				{
+					threads = Math.max(1, Integer.parseInt(args[++i]));
+				}
+				catch (NumberFormatException e)
+				{
+					handleFatalError(Messages.getString("Main.9"), null); //$NON-NLS-1$
+					return;
+				}
+			}
+			else
+				pattern = args[i];
+		}
+		int failed = 0;
+		try
+		{
+			Class.forName(invokerClassName);
+		}
+		catch (Exception e)
+		{
+			handleFatalError(Messages.getString("Main.5") + invokerClassName, e); //$NON-NLS-1$
+		}
+		try
+		{
+			PipelineDefinition pipeline = new PipelineDefinition(launchFile);
+			Batch batch = Batch.create(args[3], outputDir, pattern);
+			if (JAXPSAXProcessorInvoker.class.getName().equals(invokerClassName))
+				failed = batch.run(pipeline, threads);
+			else
+				failed = batch.run(invokerClassName, pipeline);
+			outputDir.mkdirs();
+			batch.writeReport(new File(outputDir, REPORT));
+			log.info(Messages.getString("Main.6") + (batch.getJobs().size() - failed)); //$NON-NLS-1$
+			log.info(Messages.getString("Main.7") + failed); //$NON-NLS-1$
 		}
 		catch (Exception e)
 		{
 			handleFatalError(e.getMessage(), e);
 		}
+		if (failed > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Open the file where the output of a transformation will be written.
+	 *
+	 * @param target the file
+	 * @return a buffered stream, which the caller must close
+	 * @throws IOException if the file cannot be opened
+	 */
+	static OutputStream openTarget(File target) throws IOException
+	{
+		return new BufferedOutputStream(new FileOutputStream(target), OUTPUT_BUFFER_SIZE);
 	}
 
 	private static void handleFatalError(String msg, Throwable t)
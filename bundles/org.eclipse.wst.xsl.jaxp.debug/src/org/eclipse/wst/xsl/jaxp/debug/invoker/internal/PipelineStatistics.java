@@ -0,0 +1,588 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.invoker.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+
+/**
+ * Statistics on one run of a pipeline: for each stage, the time taken to
+ * compile its stylesheet and to transform, the number of SAX events it
+ * received and sent, and the growth of the heap while it ran.
+ * <p>
+ * The stages of a pipeline run at the same time, each handing events to the
+ * next. Events are counted, and timed, as they enter each stage: the time of a
+ * stage is the time spent handling its input less the time spent by the
+ * stages after it. The output of the last stage is counted by an extra
+ * handler in front of the result, and its time is included in the last
+ * stage's. The heap is sampled every 1024 events that a stage receives, and
+ * when its input ends, so the heap growth of each stage is approximate, and
+ * includes the growth of the stages before it.
+ * </p>
+ */
+public class PipelineStatistics
+{
+	private static final Log log = LogFactory.getLog(PipelineStatistics.class);
+	private static final int HEAP_SAMPLE_INTERVAL = 1024;
+	private static final long NANOS_PER_MILLI = 1000000L;
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	private final List<Stage> stages = new ArrayList<Stage>();
+	private Counter output;
+	private String source;
+	private long baselineHeap;
+	private long startTime;
+	private boolean started;
+	private long totalTime;
+	private long bytesOut = -1;
+
+	/**
+	 * Record that a stage was added to the pipeline.
+	 *
+	 * @param stylesheet the system identifier of the stage's stylesheet
+	 * @param compileTime the time taken to compile, or to get from the cache, the
+	 *            stage's stylesheet, in nanoseconds
+	 * @return the index of the stage
+	 */
+	public synchronized int stageAdded(String stylesheet, long compileTime)
+	{
+		Stage stage = new Stage(stylesheet, compileTime);
+		stages.add(stage);
+		return stages.size() - 1;
+	}
+
+	/**
+	 * Get a handler that counts and times the events sent to the given stage, passing
+	 * them on to the stage's handler.
+	 *
+	 * @param stage the index of the stage
+	 * @param handler the stage's handler
+	 * @return the counting handler, which is also a <code>LexicalHandler</code>
+	 */
+	public synchronized ContentHandler instrument(int stage, ContentHandler handler)
+	{
+		Counter counter = new Counter(handler);
+		stages.get(stage).input = counter;
+		return counter;
+	}
+
+	/**
+	 * Get a handler that counts the events sent by the last stage, passing them on to the
+	 * result's handler.
+	 *
+	 * @param handler the result's handler
+	 * @return the counting handler, which is also a <code>LexicalHandler</code>
+	 */
+	public synchronized ContentHandler instrumentOutput(ContentHandler handler)
+	{
+		output = new Counter(handler);
+		return output;
+	}
+
+	/**
+	 * Record that a transformation has started.
+	 *
+	 * @param sourceId the system identifier of the source document
+	 */
+	public synchronized void transformStarted(String sourceId)
+	{
+		source = sourceId;
+		Runtime runtime = Runtime.getRuntime();
+		baselineHeap = runtime.totalMemory() - runtime.freeMemory();
+		startTime = System.nanoTime();
+		started = true;
+	}
+
+	/**
+	 * Record that the transformation has ended.
+	 */
+	public synchronized void transformEnded()
+	{
+		if (started)
+			totalTime = System.nanoTime() - startTime;
+		started = false;
+	}
+
+	/**
+	 * Record the number of bytes that the last stage wrote to the result.
+	 *
+	 * @param bytes the number of bytes
+	 */
+	public synchronized void setBytesOut(long bytes)
+	{
+		bytesOut = bytes;
+	}
+
+	/**
+	 * Log a summary of the statistics, one line per stage.
+	 */
+	public synchronized void log()
+	{
+		log.info(Messages.getString("PipelineStatistics.0") + millis(totalTime) + Messages.getString("PipelineStatistics.1") + millis(getParseTime())); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 0; i < stages.size(); i++)
+		{
+			Stage stage = stages.get(i);
+			StringBuffer sb = new StringBuffer();
+			sb.append(Messages.getString("PipelineStatistics.2")).append(i).append(' ').append(stage.stylesheet); //$NON-NLS-1$
+			sb.append(Messages.getString("PipelineStatistics.3")).append(millis(stage.compileTime)); //$NON-NLS-1$
+			sb.append(Messages.getString("PipelineStatistics.4")).append(millis(getTransformTime(i))); //$NON-NLS-1$
+			sb.append(Messages.getString("PipelineStatistics.5")).append(getEventsIn(i)); //$NON-NLS-1$
+			sb.append(Messages.getString("PipelineStatistics.6")).append(getEventsOut(i)); //$NON-NLS-1$
+			sb.append(Messages.getString("PipelineStatistics.7")).append(getPeakHeapDelta(i)); //$NON-NLS-1$
+			if (i == stages.size() - 1 && bytesOut >= 0)
+				sb.append(Messages.getString("PipelineStatistics.8")).append(bytesOut); //$NON-NLS-1$
+			log.info(sb.toString());
+		}
+	}
+
+	/**
+	 * Write the statistics as a JSON object.
+	 *
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void writeJSON(File file) throws IOException
+	{
+		PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8));
+		try
+		{
+			pw.println('{');
+			pw.println("  \"source\": " + quote(source) + ","); //$NON-NLS-1$ //$NON-NLS-2$
+			pw.println("  \"totalMillis\": " + millis(totalTime) + ","); //$NON-NLS-1$ //$NON-NLS-2$
+			pw.println("  \"parseMillis\": " + millis(getParseTime()) + ","); //$NON-NLS-1$ //$NON-NLS-2$
+			pw.println("  \"stages\": ["); //$NON-NLS-1$
+			for (int i = 0; i < stages.size(); i++)
+			{
+				Stage stage = stages.get(i);
+				pw.print("    {\"index\": " + i); //$NON-NLS-1$
+				pw.print(", \"stylesheet\": " + quote(stage.stylesheet)); //$NON-NLS-1$
+				pw.print(", \"compileMillis\": " + millis(stage.compileTime)); //$NON-NLS-1$
+				pw.print(", \"transformMillis\": " + millis(getTransformTime(i))); //$NON-NLS-1$
+				pw.print(", \"eventsIn\": " + getEventsIn(i)); //$NON-NLS-1$
+				pw.print(", \"eventsOut\": " + getEventsOut(i)); //$NON-NLS-1$
+				pw.print(", \"bytesOut\": " + (i == stages.size() - 1 && bytesOut >= 0 ? String.valueOf(bytesOut) : "null")); //$NON-NLS-1$ //$NON-NLS-2$
+				pw.print(", \"peakHeapDeltaBytes\": " + getPeakHeapDelta(i) + "}"); //$NON-NLS-1$ //$NON-NLS-2$
+				pw.println(i < stages.size() - 1 ? "," : ""); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			pw.println("  ]"); //$NON-NLS-1$
+			pw.println('}');
+		}
+		finally
+		{
+			pw.close();
+		}
+	}
+
+	/**
+	 * Write the statistics as CSV, one row per stage.
+	 *
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void writeCSV(File file) throws IOException
+	{
+		PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8));
+		try
+		{
+			pw.println("index,stylesheet,compileMillis,transformMillis,eventsIn,eventsOut,bytesOut,peakHeapDeltaBytes"); //$NON-NLS-1$
+			for (int i = 0; i < stages.size(); i++)
+			{
+				Stage stage = stages.get(i);
+				pw.print(i + "," + csv(stage.stylesheet) + "," + millis(stage.compileTime) + "," + millis(getTransformTime(i))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				pw.print("," + getEventsIn(i) + "," + getEventsOut(i) + ","); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				if (i == stages.size() - 1 && bytesOut >= 0)
+					pw.print(bytesOut);
+				pw.println("," + getPeakHeapDelta(i)); //$NON-NLS-1$
+			}
+		}
+		finally
+		{
+			pw.close();
+		}
+	}
+
+	private long getParseTime()
+	{
+		Counter first = stages.isEmpty() ? null : stages.get(0).input;
+		return first == null ? totalTime : Math.max(0, totalTime - first.time);
+	}
+
+	private long getTransformTime(int i)
+	{
+		Counter input = stages.get(i).input;
+		if (input == null)
+			return 0;
+		Counter next = i + 1 < stages.size() ? stages.get(i + 1).input : null;
+		return Math.max(0, input.time - (next == null ? 0 : next.time));
+	}
+
+	private long getEventsIn(int i)
+	{
+		Counter input = stages.get(i).input;
+		return input == null ? 0 : input.events;
+	}
+
+	private long getEventsOut(int i)
+	{
+		Counter next = i + 1 < stages.size() ? stages.get(i + 1).input : output;
+		return next == null ? 0 : next.events;
+	}
+
+	private long getPeakHeapDelta(int i)
+	{
+		Counter input = stages.get(i).input;
+		return input == null ? 0 : Math.max(0, input.peakHeap - baselineHeap);
+	}
+
+	private static String millis(long nanos)
+	{
+		long tenths = nanos / (NANOS_PER_MILLI / 10);
+		return tenths / 10 + "." + tenths % 10; //$NON-NLS-1$
+	}
+
+	private static String quote(String s)
+	{
+		if (s == null)
+			return "null"; //$NON-NLS-1$
+		StringBuffer sb = new StringBuffer("\""); //$NON-NLS-1$
+		for (int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", Integer.valueOf(c))); //$NON-NLS-1$
+			else
+				sb.append(c);
+		}
+		return sb.append('"').toString();
+	}
+
+	private static String csv(String s)
+	{
+		if (s == null)
+			return ""; //$NON-NLS-1$
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+			return s;
+		return '"' + s.replace("\"", "\"\"") + '"'; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static class Stage
+	{
+		final String stylesheet;
+		final long compileTime;
+		Counter input;
+
+		Stage(String stylesheet, long compileTime)
+		{
+			this.stylesheet = stylesheet;
+			this.compileTime = compileTime;
+		}
+	}
+
+	/**
+	 * Counts and times the events passed on to a handler, including the time the handler
+	 * spends passing them on in turn.
+	 */
+	private static class Counter implements ContentHandler, LexicalHandler
+	{
+		private final ContentHandler next;
+		private final LexicalHandler nextLexical;
+		long events;
+		long time;
+		long peakHeap;
+		private int depth;
+		private long start;
+
+		Counter(ContentHandler next)
+		{
+			this.next = next;
+			this.nextLexical = next instanceof LexicalHandler ? (LexicalHandler) next : null;
+		}
+
+		private void begin()
+		{
+			events++;
+			if (events % HEAP_SAMPLE_INTERVAL == 0)
+				sampleHeap();
+			// events are not nested, but be safe against re-entrant handlers
+			if (depth++ == 0)
+				start = System.nanoTime();
+		}
+
+		private void sampleHeap()
+		{
+			Runtime runtime = Runtime.getRuntime();
+			peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+		}
+
+		private void end()
+		{
+			if (--depth == 0)
+				time += System.nanoTime() - start;
+		}
+
+		public void setDocumentLocator(Locator locator)
+		{
+			next.setDocumentLocator(locator);
+		}
+
+		public void startDocument() throws SAXException
+		{
+			begin();
+			try
+			{
+				next.startDocument();
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void endDocument() throws SAXException
+		{
+			// all of the stage's input has been held by now
+			sampleHeap();
+			begin();
+			try
+			{
+				next.endDocument();
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void startPrefixMapping(String prefix, String uri) throws SAXException
+		{
+			begin();
+			try
+			{
+				next.startPrefixMapping(prefix, uri);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void endPrefixMapping(String prefix) throws SAXException
+		{
+			begin();
+			try
+			{
+				next.endPrefixMapping(prefix);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException
+		{
+			begin();
+			try
+			{
+				next.startElement(uri, localName, qName, atts);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void endElement(String uri, String localName, String qName) throws SAXException
+		{
+			begin();
+			try
+			{
+				next.endElement(uri, localName, qName);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void characters(char[] ch, int start, int length) throws SAXException
+		{
+			begin();
+			try
+			{
+				next.characters(ch, start, length);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException
+		{
+			begin();
+			try
+			{
+				next.ignorableWhitespace(ch, start, length);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void processingInstruction(String target, String data) throws SAXException
+		{
+			begin();
+			try
+			{
+				next.processingInstruction(target, data);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void skippedEntity(String name) throws SAXException
+		{
+			begin();
+			try
+			{
+				next.skippedEntity(name);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void startDTD(String name, String publicId, String systemId) throws SAXException
+		{
+			if (nextLexical == null)
+				return;
+			begin();
+			try
+			{
+				nextLexical.startDTD(name, publicId, systemId);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void endDTD() throws SAXException
+		{
+			if (nextLexical == null)
+				return;
+			begin();
+			try
+			{
+				nextLexical.endDTD();
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void startEntity(String name) throws SAXException
+		{
+			if (nextLexical == null)
+				return;
+			begin();
+			try
+			{
+				nextLexical.startEntity(name);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void endEntity(String name) throws SAXException
+		{
+			if (nextLexical == null)
+				return;
+			begin();
+			try
+			{
+				nextLexical.endEntity(name);
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void startCDATA() throws SAXException
+		{
+			if (nextLexical == null)
+				return;
+			begin();
+			try
+			{
+				nextLexical.startCDATA();
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void endCDATA() throws SAXException
+		{
+			if (nextLexical == null)
+				return;
+			begin();
+			try
+			{
+				nextLexical.endCDATA();
+			}
+			finally
+			{
+				end();
+			}
+		}
+
+		public void comment(char[] ch, int start, int length) throws SAXException
+		{
+			if (nextLexical == null)
+				return;
+			begin();
+			try
+			{
+				nextLexical.comment(ch, start, length);
+			}
+			finally
+			{
+				end();
+			}
+		}
+	}
+}
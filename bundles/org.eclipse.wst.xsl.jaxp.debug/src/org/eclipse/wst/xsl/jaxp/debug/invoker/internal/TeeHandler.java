@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.invoker.internal;
+
+import java.util.List;
+
+import javax.xml.transform.sax.TransformerHandler;
+
+import org.eclipse.wst.xsl.jaxp.debug.invoker.Tap;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+
+/**
+ * A handler that passes every event to the next stage of a pipeline, and a
+ * copy to each of the stage's taps.
+ * <p>
+ * An exception thrown by a tap's handler fails that tap only: it is sent no
+ * further events, and the pipeline carries on.
+ * </p>
+ */
+class TeeHandler implements ContentHandler, LexicalHandler
+{
+	private final ContentHandler next;
+	private final LexicalHandler nextLexical;
+	private final Tap[] taps;
+	private final TransformerHandler[] handlers;
+
+	/**
+	 * Create a new instance of this.
+	 *
+	 * @param next the handler of the next stage
+	 * @param taps the taps
+	 * @param handlers the handler of each tap
+	 */
+	TeeHandler(ContentHandler next, List<Tap> taps, List<TransformerHandler> handlers)
+	{
+		this.next = next;
+		this.nextLexical = next instanceof LexicalHandler ? (LexicalHandler) next : null;
+		this.taps = taps.toArray(new Tap[taps.size()]);
+		this.handlers = handlers.toArray(new TransformerHandler[handlers.size()]);
+	}
+
+	public void setDocumentLocator(Locator locator)
+	{
+		next.setDocumentLocator(locator);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (!taps[i].isFull())
+				handlers[i].setDocumentLocator(locator);
+		}
+	}
+
+	public void startDocument() throws SAXException
+	{
+		next.startDocument();
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].startDocument();
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void endDocument() throws SAXException
+	{
+		next.endDocument();
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].endDocument();
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void startPrefixMapping(String prefix, String uri) throws SAXException
+	{
+		next.startPrefixMapping(prefix, uri);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].startPrefixMapping(prefix, uri);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void endPrefixMapping(String prefix) throws SAXException
+	{
+		next.endPrefixMapping(prefix);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].endPrefixMapping(prefix);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException
+	{
+		next.startElement(uri, localName, qName, atts);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].startElement(uri, localName, qName, atts);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void endElement(String uri, String localName, String qName) throws SAXException
+	{
+		next.endElement(uri, localName, qName);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].endElement(uri, localName, qName);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void characters(char[] ch, int start, int length) throws SAXException
+	{
+		next.characters(ch, start, length);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].characters(ch, start, length);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException
+	{
+		next.ignorableWhitespace(ch, start, length);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].ignorableWhitespace(ch, start, length);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void processingInstruction(String target, String data) throws SAXException
+	{
+		next.processingInstruction(target, data);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].processingInstruction(target, data);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void skippedEntity(String name) throws SAXException
+	{
+		next.skippedEntity(name);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].skippedEntity(name);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void startDTD(String name, String publicId, String systemId) throws SAXException
+	{
+		if (nextLexical != null)
+			nextLexical.startDTD(name, publicId, systemId);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].startDTD(name, publicId, systemId);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void endDTD() throws SAXException
+	{
+		if (nextLexical != null)
+			nextLexical.endDTD();
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].endDTD();
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void startEntity(String name) throws SAXException
+	{
+		if (nextLexical != null)
+			nextLexical.startEntity(name);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].startEntity(name);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void endEntity(String name) throws SAXException
+	{
+		if (nextLexical != null)
+			nextLexical.endEntity(name);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].endEntity(name);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void startCDATA() throws SAXException
+	{
+		if (nextLexical != null)
+			nextLexical.startCDATA();
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].startCDATA();
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void endCDATA() throws SAXException
+	{
+		if (nextLexical != null)
+			nextLexical.endCDATA();
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].endCDATA();
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+
+	public void comment(char[] ch, int start, int length) throws SAXException
+	{
+		if (nextLexical != null)
+			nextLexical.comment(ch, start, length);
+		for (int i = 0; i < taps.length; i++)
+		{
+			if (taps[i].isFull())
+				continue;
+			try
+			{
+				handlers[i].comment(ch, start, length);
+			}
+			catch (Exception e)
+			{
+				taps[i].fail(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.invoker.internal;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+
+/**
+ * A cache of compiled stylesheets, shared by all invokers in the process.
+ * <p>
+ * Compiled <code>Templates</code> are keyed by the stylesheet's system
+ * identifier, the class of the <code>TransformerFactory</code> and the
+ * factory attributes. Each entry remembers the modification time of every
+ * stylesheet module it was compiled from (the stylesheet and everything it
+ * includes or imports), and is only reused while none of them has changed.
+ * </p>
+ * <p>
+ * Only the modification time of files is checked. An entry compiled from any
+ * module that is not a file, for example one fetched over http, is only
+ * reused within the run it was compiled in (see <code>startRun</code>).
+ * </p>
+ * <p>
+ * <code>Templates</code> are thread-safe, so a cached entry may be used by
+ * several transformations at once.
+ * </p>
+ */
+public class TemplatesCache
+{
+	private static final int MAX_ENTRIES = 100;
+	private static final TemplatesCache instance = new TemplatesCache();
+
+	private final Map<List<Object>, CachedTemplates> entries = new LinkedHashMap<List<Object>, CachedTemplates>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedTemplates> eldest)
+		{
+			return size() > MAX_ENTRIES;
+		}
+	};
+	private int hits;
+	private int misses;
+	private int run;
+
+	private TemplatesCache()
+	{
+	}
+
+	/**
+	 * Get the shared instance of this.
+	 *
+	 * @return the shared cache
+	 */
+	public static TemplatesCache getInstance()
+	{
+		return instance;
+	}
+
+	/**
+	 * Get the compiled form of the given stylesheet, compiling it with the
+	 * given factory unless an up to date compiled form is cached.
+	 *
+	 * @param factory the factory used to compile the stylesheet
+	 * @param attributes the attributes that were set on the factory
+	 * @param source the stylesheet, which must have a system identifier
+	 * @return the compiled stylesheet
+	 * @throws TransformerConfigurationException if the stylesheet could not be compiled
+	 */
+	public Templates getTemplates(TransformerFactory factory, Map<?, ?> attributes, Source source) throws TransformerConfigurationException
+	{
+		List<Object> key = Arrays.asList(new Object[]{ source.getSystemId(), factory.getClass().getName(), new HashMap<Object, Object>(attributes) });
+		CachedTemplates entry;
+		int currentRun;
+		synchronized (this)
+		{
+			entry = entries.get(key);
+			currentRun = run;
+		}
+		if (entry != null && entry.isUpToDate(currentRun))
+		{
+			synchronized (this)
+			{
+				hits++;
+			}
+			return entry.templates;
+		}
+		entry = compile(factory, source, currentRun);
+		synchronized (this)
+		{
+			misses++;
+			entries.put(key, entry);
+		}
+		return entry.templates;
+	}
+
+	/**
+	 * Start a new run, such as a job of a process that runs many launches.
+	 * Stylesheets compiled from modules that are not files are compiled again
+	 * the next time they are used, since their modification times are not
+	 * checked.
+	 */
+	public synchronized void startRun()
+	{
+		run++;
+	}
+
+	/**
+	 * Remove all compiled stylesheets from this.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+	}
+
+	/**
+	 * Get the number of requests that were answered from the cache.
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized int getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * Get the number of requests that required a compilation.
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized int getMissCount()
+	{
+		return misses;
+	}
+
+	private static CachedTemplates compile(TransformerFactory factory, Source source, int run) throws TransformerConfigurationException
+	{
+		// record the modules that are included or imported while compiling
+		Set<String> modules = new LinkedHashSet<String>();
+		modules.add(source.getSystemId());
+		synchronized (factory)
+		{
+			URIResolver resolver = factory.getURIResolver();
+			factory.setURIResolver(new RecordingResolver(resolver, modules));
+			try
+			{
+				Templates templates = factory.newTemplates(source);
+				return new CachedTemplates(templates, modules, run);
+			}
+			finally
+			{
+				factory.setURIResolver(resolver);
+			}
+		}
+	}
+
+	private static File toFile(String systemId)
+	{
+		try
+		{
+			URI uri = new URI(systemId);
+			if ("file".equals(uri.getScheme())) //$NON-NLS-1$
+				return new File(uri);
+		}
+		catch (URISyntaxException e)
+		{
+			// not a file
+		}
+		catch (IllegalArgumentException e)
+		{
+			// not a file
+		}
+		return null;
+	}
+
+	private static class CachedTemplates
+	{
+		final Templates templates;
+		final File[] files;
+		final long[] lastModified;
+		// the run the entry is limited to, or -1 if all its modules are files
+		final int run;
+
+		CachedTemplates(Templates templates, Set<String> modules, int run)
+		{
+			this.templates = templates;
+			List<File> list = new ArrayList<File>(modules.size());
+			boolean onlyFiles = true;
+			for (String module : modules)
+			{
+				File file = toFile(module);
+				if (file == null)
+					onlyFiles = false;
+				else
+					list.add(file);
+			}
+			this.files = list.toArray(new File[list.size()]);
+			this.lastModified = new long[files.length];
+			for (int i = 0; i < files.length; i++)
+			{
+				lastModified[i] = files[i].lastModified();
+			}
+			this.run = onlyFiles ? -1 : run;
+		}
+
+		boolean isUpToDate(int currentRun)
+		{
+			if (run != -1 && run != currentRun)
+				return false;
+			for (int i = 0; i < files.length; i++)
+			{
+				// a file whose time cannot be determined is assumed changed
+				if (lastModified[i] <= 0 || files[i].lastModified() != lastModified[i])
+					return false;
+			}
+			return true;
+		}
+	}
+
+	private static class RecordingResolver implements URIResolver
+	{
+		private final URIResolver resolver;
+		private final Set<String> modules;
+
+		RecordingResolver(URIResolver resolver, Set<String> modules)
+		{
+			this.resolver = resolver;
+			this.modules = modules;
+		}
+
+		public Source resolve(String href, String base) throws TransformerException
+		{
+			Source source = resolver == null ? null : resolver.resolve(href, base);
+			String systemId = source == null ? null : source.getSystemId();
+			if (systemId == null)
+			{
+				try
+				{
+					systemId = base == null ? href : new URI(base).resolve(new URI(href)).toString();
+				}
+				catch (URISyntaxException e)
+				{
+					systemId = null;
+				}
+			}
+			if (systemId != null)
+				modules.add(systemId);
+			return source;
+		}
+	}
+}
@@ -0,0 +1,752 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.xsl.jaxp.debug.invoker.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.wst.xsl.jaxp.debug.invoker.IProcessorInvoker;
+import org.eclipse.wst.xsl.jaxp.debug.invoker.PipelineDefinition;
+import org.eclipse.wst.xsl.jaxp.debug.invoker.TransformationException;
+
+/**
+ * A transformation process that stays alive between launches.
+ * <p>
+ * The worker listens on a local port and runs one transformation per
+ * connection, each with a new invoker configured from the launch file. As the
+ * worker outlives the launches, the <code>TemplatesCache</code> keeps
+ * stylesheets compiled from one launch to the next, and the processor classes
+ * are only loaded once.
+ * </p>
+ * <p>
+ * The port, together with a secret that clients must send with every job, is
+ * written to a state file in a directory given by the launcher. The worker
+ * restricts that directory to its owner before writing anything to it, and does
+ * not start where that cannot be ensured. The worker
+ * serves a single fingerprint of its class path, VM arguments, environment and
+ * working directory: a job
+ * with a different fingerprint makes it exit so that the client can start a
+ * new worker. An idle worker exits after 30 minutes.
+ * </p>
+ * <p>
+ * The protocol is line based, in UTF-8. A job is the secret, the fingerprint,
+ * the invoker class name, the launch file, the source URL and the target
+ * file, one per line. The answer is one line: <code>OK</code>,
+ * <code>RECYCLE</code>, or <code>ERROR</code> followed by a message.
+ * </p>
+ * <p>
+ * The worker only runs jobs whose launch file is in the directory that contains
+ * its state directory (the launcher's state directory), and whose target is in
+ * that directory or is listed in the <code>targets</code> file of the state
+ * directory. The launcher registers each target there, one absolute path per
+ * line, in UTF-8.
+ * </p>
+ * <p>
+ * The output of the worker, including <code>xsl:message</code> output and the
+ * processor's log, goes to <code>worker.log</code> in the state directory
+ * rather than to the launching process.
+ * </p>
+ */
+public class TransformWorker
+{
+	private static final String STATE_FILE = "worker.properties"; //$NON-NLS-1$
+	private static final String LOG_FILE = "worker.log"; //$NON-NLS-1$
+	private static final String TARGETS_FILE = "targets"; //$NON-NLS-1$
+	private static final String PORT = "port"; //$NON-NLS-1$
+	private static final String SECRET = "secret"; //$NON-NLS-1$
+	private static final String FINGERPRINT = "fingerprint"; //$NON-NLS-1$
+	private static final String OK = "OK"; //$NON-NLS-1$
+	private static final String RECYCLE = "RECYCLE"; //$NON-NLS-1$
+	private static final String ERROR = "ERROR "; //$NON-NLS-1$
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+	private static final String ENDORSED_DIRS = "java.endorsed.dirs"; //$NON-NLS-1$
+	private static final String USER_DIR = "user.dir"; //$NON-NLS-1$
+	private static final String TRANSFORMER_FACTORY = "javax.xml.transform.TransformerFactory"; //$NON-NLS-1$
+	private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private static final int IDLE_TIMEOUT = 30 * 60 * 1000;
+	private static final int CONNECT_TIMEOUT = 2000;
+	private static final int START_TIMEOUT = 30000;
+	// a client that connects but never sends a whole job
+	private static final int READ_TIMEOUT = 30000;
+
+	private final File stateDir;
+	private final String fingerprint;
+	private final String secret;
+	private ServerSocket server;
+	private int activeJobs;
+	private boolean recycling;
+
+	private TransformWorker(File stateDir, String fingerprint)
+	{
+		this.stateDir = stateDir;
+		this.fingerprint = fingerprint;
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		this.secret = toHex(bytes);
+	}
+
+	/**
+	 * The <code>main</code> method of the worker process. There are 2 required arguments:
+	 * <ol>
+	 * <li>The directory for the worker's state file and log
+	 * <li>The fingerprint of the worker's class path and settings
+	 * </ol>
+	 *
+	 * @param args the 2 required arguments
+	 */
+	public static void main(String[] args)
+	{
+		File stateDir = new File(args[0]);
+		stateDir.mkdirs();
+		// before the log, state or any other file is created in it
+		if (!stateDir.isDirectory() || !restrictToOwner(stateDir))
+		{
+			Logging.log.fatal(Messages.getString("TransformWorker.9") + stateDir); //$NON-NLS-1$
+			System.exit(1);
+		}
+		try
+		{
+			// nobody reads the output of a detached process
+			PrintStream out = new PrintStream(new FileOutputStream(new File(stateDir, LOG_FILE)), true);
+			System.setOut(out);
+			System.setErr(out);
+		}
+		catch (IOException e)
+		{
+			// keep the original streams
+		}
+		try
+		{
+			new TransformWorker(stateDir, args[1]).serve();
+		}
+		catch (IOException e)
+		{
+			Logging.log.fatal(e.getMessage(), e);
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	private void serve() throws IOException
+	{
+		server = new ServerSocket(0, 50, InetAddress.getByName(null));
+		server.setSoTimeout(IDLE_TIMEOUT);
+		writeState();
+		Logging.log.info(Messages.getString("TransformWorker.0") + server.getLocalPort()); //$NON-NLS-1$
+		try
+		{
+			while (true)
+			{
+				final Socket socket;
+				try
+				{
+					socket = server.accept();
+				}
+				catch (SocketTimeoutException e)
+				{
+					if (isIdle())
+						break;
+					continue;
+				}
+				catch (IOException e)
+				{
+					// closed when recycling
+					if (isRecycling())
+						break;
+					throw e;
+				}
+				jobStarted();
+				Thread thread = new Thread(new Runnable()
+				{
+					public void run()
+					{
+						try
+						{
+							handle(socket);
+						}
+						finally
+						{
+							jobFinished();
+						}
+					}
+				}, "TransformWorker job"); //$NON-NLS-1$
+				thread.start();
+			}
+		}
+		finally
+		{
+			server.close();
+			deleteState();
+		}
+		waitForJobs();
+		Logging.log.info(Messages.getString("TransformWorker.1")); //$NON-NLS-1$
+	}
+
+	private void handle(Socket socket)
+	{
+		try
+		{
+			try
+			{
+				socket.setSoTimeout(READ_TIMEOUT);
+				BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+				Writer writer = new OutputStreamWriter(socket.getOutputStream(), UTF_8);
+				String[] job = new String[6];
+				for (int i = 0; i < job.length; i++)
+				{
+					job[i] = reader.readLine();
+					if (job[i] == null)
+						return;
+				}
+				if (!secret.equals(job[0]))
+					return;
+				String answer;
+				if (!fingerprint.equals(job[1]))
+				{
+					recycle();
+					answer = RECYCLE;
+				}
+				else
+				{
+					File launchFile = new File(job[3]);
+					File target = new File(job[5]);
+					String error = checkFiles(launchFile, target);
+					if (error == null)
+						error = transform(job[2], launchFile, job[4], target);
+					answer = error == null ? OK : ERROR + error.replace('\n', ' ').replace('\r', ' ');
+				}
+				writer.write(answer + "\n"); //$NON-NLS-1$
+				writer.flush();
+			}
+			finally
+			{
+				socket.close();
+			}
+		}
+		catch (IOException e)
+		{
+			Logging.log.error(e.getMessage(), e);
+		}
+	}
+
+	private String checkFiles(File launchFile, File target) throws IOException
+	{
+		File launcherDir = stateDir.getAbsoluteFile().getParentFile();
+		if (launcherDir == null || !isInside(launchFile, launcherDir))
+		{
+			Logging.log.error(Messages.getString("TransformWorker.6") + launchFile); //$NON-NLS-1$
+			return Messages.getString("TransformWorker.6") + launchFile; //$NON-NLS-1$
+		}
+		if (!isInside(target, launcherDir) && !isRegistered(target))
+		{
+			Logging.log.error(Messages.getString("TransformWorker.7") + target); //$NON-NLS-1$
+			return Messages.getString("TransformWorker.7") + target; //$NON-NLS-1$
+		}
+		return null;
+	}
+
+	private static boolean isInside(File file, File dir) throws IOException
+	{
+		String path = file.getCanonicalPath();
+		String dirPath = dir.getCanonicalPath();
+		return path.startsWith(dirPath.endsWith(File.separator) ? dirPath : dirPath + File.separator);
+	}
+
+	private boolean isRegistered(File target) throws IOException
+	{
+		// read on every job, as the launcher adds targets while the worker runs
+		File file = new File(stateDir, TARGETS_FILE);
+		if (!file.isFile())
+			return false;
+		String path = target.getAbsolutePath();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+		try
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.equals(path))
+					return true;
+			}
+			return false;
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	private static String transform(String invokerClassName, File launchFile, String src, File target)
+	{
+		Logging.log.info(Messages.getString("Main.4") + launchFile); //$NON-NLS-1$
+		// stylesheets that are not files may have changed since the last job
+		TemplatesCache.getInstance().startRun();
+		IProcessorInvoker invoker;
+		try
+		{
+			// only invokers are initialized, not any class a job names
+			Class<?> clazz = Class.forName(invokerClassName, false, TransformWorker.class.getClassLoader());
+			if (!IProcessorInvoker.class.isAssignableFrom(clazz))
+				throw new ClassCastException(invokerClassName);
+			invoker = (IProcessorInvoker) clazz.newInstance();
+		}
+		catch (Exception e)
+		{
+			Logging.log.error(Messages.getString("Main.5") + invokerClassName, e); //$NON-NLS-1$
+			return Messages.getString("Main.5") + invokerClassName; //$NON-NLS-1$
+		}
+		try
+		{
+			PipelineDefinition pipeline = PipelineDefinition.load(launchFile);
+			pipeline.configure(invoker);
+			OutputStream os = Main.openTarget(target);
+			try
+			{
+				invoker.transform(new URL(src), new StreamResult(os));
+			}
+			finally
+			{
+				os.close();
+			}
+			return null;
+		}
+		catch (Exception e)
+		{
+			Logging.log.error(e.getMessage(), e);
+			return e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+		}
+	}
+
+	private synchronized void jobStarted()
+	{
+		activeJobs++;
+	}
+
+	private synchronized void jobFinished()
+	{
+		activeJobs--;
+		notifyAll();
+	}
+
+	private synchronized boolean isIdle()
+	{
+		return activeJobs == 0;
+	}
+
+	private synchronized void waitForJobs()
+	{
+		while (activeJobs > 0)
+		{
+			try
+			{
+				wait();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private synchronized boolean isRecycling()
+	{
+		return recycling;
+	}
+
+	private void recycle() throws IOException
+	{
+		synchronized (this)
+		{
+			recycling = true;
+		}
+		Logging.log.info(Messages.getString("TransformWorker.2")); //$NON-NLS-1$
+		// stop accepting jobs, the client starts a new worker
+		deleteState();
+		server.close();
+	}
+
+	private void writeState() throws IOException
+	{
+		Properties state = new Properties();
+		state.setProperty(PORT, String.valueOf(server.getLocalPort()));
+		state.setProperty(SECRET, secret);
+		state.setProperty(FINGERPRINT, fingerprint);
+		// write then rename, so that clients never read a partial file
+		File tmp = new File(stateDir, STATE_FILE + ".tmp"); //$NON-NLS-1$
+		tmp.delete();
+		OutputStream os = new FileOutputStream(tmp);
+		boolean written = false;
+		try
+		{
+			// the secret lets anyone who reads it run jobs as this user
+			if (!restrictToOwner(tmp))
+				throw new IOException(Messages.getString("TransformWorker.8") + tmp); //$NON-NLS-1$
+			state.store(os, null);
+			written = true;
+		}
+		finally
+		{
+			os.close();
+			if (!written)
+				tmp.delete();
+		}
+		File file = new File(stateDir, STATE_FILE);
+		file.delete();
+		if (!tmp.renameTo(file))
+			throw new IOException(Messages.getString("TransformWorker.3") + file); //$NON-NLS-1$
+	}
+
+	private static boolean restrictToOwner(File file)
+	{
+		// File.setReadable, File.setWritable and File.setExecutable are only available from Java 6
+		try
+		{
+			Method setReadable = File.class.getMethod("setReadable", new Class<?>[]{ boolean.class, boolean.class }); //$NON-NLS-1$
+			Method setWritable = File.class.getMethod("setWritable", new Class<?>[]{ boolean.class, boolean.class }); //$NON-NLS-1$
+			if (!setPermission(setReadable, file, false, false) || !setPermission(setReadable, file, true, true)
+					|| !setPermission(setWritable, file, false, false) || !setPermission(setWritable, file, true, true))
+				return false;
+			if (!file.isDirectory())
+				return true;
+			// a directory is only searched by its owner
+			Method setExecutable = File.class.getMethod("setExecutable", new Class<?>[]{ boolean.class, boolean.class }); //$NON-NLS-1$
+			return setPermission(setExecutable, file, false, false) && setPermission(setExecutable, file, true, true);
+		}
+		catch (NoSuchMethodException e)
+		{
+			// fail closed
+		}
+		catch (IllegalAccessException e)
+		{
+			// fail closed
+		}
+		catch (InvocationTargetException e)
+		{
+			// fail closed
+		}
+		return false;
+	}
+
+	private static boolean setPermission(Method method, File file, boolean allow, boolean ownerOnly) throws IllegalAccessException, InvocationTargetException
+	{
+		return Boolean.TRUE.equals(method.invoke(file, new Object[]{ Boolean.valueOf(allow), Boolean.valueOf(ownerOnly) }));
+	}
+
+	private synchronized void deleteState()
+	{
+		// only if a newer worker has not replaced it
+		Properties state = readState(stateDir);
+		if (state != null && secret.equals(state.getProperty(SECRET)))
+			new File(stateDir, STATE_FILE).delete();
+	}
+
+	private static Properties readState(File stateDir)
+	{
+		File file = new File(stateDir, STATE_FILE);
+		if (!file.isFile())
+			return null;
+		Properties state = new Properties();
+		try
+		{
+			InputStream is = new FileInputStream(file);
+			try
+			{
+				state.load(is);
+			}
+			finally
+			{
+				is.close();
+			}
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+		return state.getProperty(PORT) == null ? null : state;
+	}
+
+	/**
+	 * Run a transformation in the worker for the given state directory, starting a worker
+	 * with the class path and settings of this process if none is running or the running
+	 * one has different ones.
+	 *
+	 * @param stateDir the directory for the worker's state file and log
+	 * @param invokerClassName the class name of the <code>IProcessorInvoker</code> to use
+	 * @param launchFile the launch file (serialized <code>PipelineDefinition</code>)
+	 * @param src the URL of the source XML document
+	 * @param target the file where output will be written
+	 * @throws TransformationException if the transformation failed, or no worker could be
+	 *             reached
+	 */
+	public static void submit(File stateDir, String invokerClassName, File launchFile, String src, File target) throws TransformationException
+	{
+		String fingerprint = getFingerprint();
+		String[] job = { null, fingerprint, invokerClassName, launchFile.getAbsolutePath(), src, target.getAbsolutePath() };
+		Properties state = readState(stateDir);
+		boolean recycled = false;
+		// at most once with the running worker and once with a new one
+		for (int attempt = 0; attempt < 2; attempt++)
+		{
+			// a worker with another fingerprint is still sent the job, so that it exits
+			if (state == null)
+				state = start(stateDir, fingerprint, recycled);
+			String answer;
+			try
+			{
+				job[0] = state.getProperty(SECRET);
+				answer = send(Integer.parseInt(state.getProperty(PORT)), job);
+			}
+			catch (IOException e)
+			{
+				// the worker has exited since writing its state
+				answer = null;
+			}
+			catch (NumberFormatException e)
+			{
+				answer = null;
+			}
+			if (OK.equals(answer))
+				return;
+			if (answer != null && answer.startsWith(ERROR))
+				throw new TransformationException(answer.substring(ERROR.length()));
+			// recycled or gone
+			recycled = RECYCLE.equals(answer);
+			state = null;
+		}
+		throw new TransformationException(Messages.getString("TransformWorker.4") + stateDir); //$NON-NLS-1$
+	}
+
+	private static String send(int port, String[] job) throws IOException
+	{
+		Socket socket = new Socket();
+		try
+		{
+			socket.connect(new InetSocketAddress(InetAddress.getByName(null), port), CONNECT_TIMEOUT);
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), UTF_8);
+			for (int i = 0; i < job.length; i++)
+			{
+				writer.write(job[i]);
+				writer.write('\n');
+			}
+			writer.flush();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+			return reader.readLine();
+		}
+		finally
+		{
+			socket.close();
+		}
+	}
+
+	private static Properties start(File stateDir, String fingerprint, boolean recycled) throws TransformationException
+	{
+		if (recycled)
+			Logging.log.info(Messages.getString("TransformWorker.5")); //$NON-NLS-1$
+		stateDir.mkdirs();
+		new File(stateDir, STATE_FILE).delete();
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		// all VM arguments, including the endorsed dirs and transformer factory
+		command.addAll(getVMArguments());
+		command.add("-cp"); //$NON-NLS-1$
+		command.add(System.getProperty("java.class.path")); //$NON-NLS-1$
+		command.add(TransformWorker.class.getName());
+		command.add(stateDir.getAbsolutePath());
+		command.add(fingerprint);
+		Process process;
+		try
+		{
+			// the worker inherits the environment of this process
+			ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+			builder.directory(new File(System.getProperty(USER_DIR)));
+			process = builder.start();
+			process.getOutputStream().close();
+		}
+		catch (IOException e)
+		{
+			throw new TransformationException(Messages.getString("TransformWorker.4") + stateDir, e); //$NON-NLS-1$
+		}
+		long deadline = System.currentTimeMillis() + START_TIMEOUT;
+		while (System.currentTimeMillis() < deadline)
+		{
+			Properties state = readState(stateDir);
+			if (state != null && fingerprint.equals(state.getProperty(FINGERPRINT)))
+				return state;
+			try
+			{
+				process.exitValue();
+				// exited before writing its state
+				break;
+			}
+			catch (IllegalThreadStateException e)
+			{
+				// still starting
+			}
+			try
+			{
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		throw new TransformationException(Messages.getString("TransformWorker.4") + stateDir); //$NON-NLS-1$
+	}
+
+	private static List<String> getVMArguments()
+	{
+		return ManagementFactory.getRuntimeMXBean().getInputArguments();
+	}
+
+	/**
+	 * Get the fingerprint of this process's class path, endorsed jars, transformer factory,
+	 * VM arguments, environment, working directory and Java installation. A worker started
+	 * from a process with a different fingerprint would load different processor classes,
+	 * or run them with different settings.
+	 *
+	 * @return the fingerprint
+	 */
+	static String getFingerprint()
+	{
+		StringBuffer sb = new StringBuffer();
+		sb.append(System.getProperty("java.home")).append('\n'); //$NON-NLS-1$
+		sb.append(System.getProperty(TRANSFORMER_FACTORY)).append('\n');
+		sb.append(System.getProperty(USER_DIR)).append('\n');
+		for (String arg : getVMArguments())
+		{
+			sb.append(arg).append('\n');
+		}
+		// sorted, as the order of the environment is not defined
+		for (Map.Entry<String, String> entry : new TreeMap<String, String>(System.getenv()).entrySet())
+		{
+			sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+		}
+		describePath(System.getProperty("java.class.path"), false, sb); //$NON-NLS-1$
+		describePath(System.getProperty(ENDORSED_DIRS), true, sb);
+		try
+		{
+			return toHex(MessageDigest.getInstance("MD5").digest(sb.toString().getBytes(UTF_8))); //$NON-NLS-1$
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			return sb.toString().replace('\n', File.pathSeparatorChar);
+		}
+		catch (IOException e)
+		{
+			return sb.toString().replace('\n', File.pathSeparatorChar);
+		}
+	}
+
+	private static void describePath(String path, boolean listDirs, StringBuffer sb)
+	{
+		if (path == null)
+			return;
+		String[] entries = path.split(File.pathSeparator);
+		for (int i = 0; i < entries.length; i++)
+		{
+			File entry = new File(entries[i]);
+			describe(entry, sb);
+			File[] children = entry.listFiles();
+			if (children == null)
+				continue;
+			if (listDirs)
+			{
+				for (int j = 0; j < children.length; j++)
+				{
+					describe(children[j], sb);
+				}
+			}
+			else
+			{
+				// a class directory's own time does not change with the classes in it
+				long[] summary = new long[3];
+				summarize(children, summary);
+				sb.append(summary[0]).append(';').append(summary[1]).append(';').append(summary[2]).append('\n');
+			}
+		}
+	}
+
+	// the number of files, their total length and the latest modification time in a tree
+	private static void summarize(File[] files, long[] summary)
+	{
+		for (int i = 0; i < files.length; i++)
+		{
+			File[] children = files[i].listFiles();
+			if (children != null)
+				summarize(children, summary);
+			else
+			{
+				summary[0]++;
+				summary[1] += files[i].length();
+				summary[2] = Math.max(summary[2], files[i].lastModified());
+			}
+		}
+	}
+
+	private static void describe(File file, StringBuffer sb)
+	{
+		sb.append(file.getAbsolutePath()).append(';').append(file.length()).append(';').append(file.lastModified()).append('\n');
+	}
+
+	/**
+	 * Holds the log, so that it is only created once <code>main</code> has redirected the
+	 * output of the worker process.
+	 */
+	private static class Logging
+	{
+		static final Log log = LogFactory.getLog(TransformWorker.class);
+	}
+
+	private static String toHex(byte[] bytes)
+	{
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++)
+		{
+			hex[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+			hex[2 * i + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
+}
@@ -21,6 +21,24 @@ public class JAXPLaunchConfigurationConstants
 	public static final String ATTR_DEFAULT_DEBUGGING_INSTALL_ID = JAXPLaunchingPlugin.PLUGIN_ID + ".ATTR_DEFAULT_DEBUGGING_INSTALL_ID"; //$NON-NLS-1$
 	public static final String ATTR_USE_DEFAULT_PROCESSOR = JAXPLaunchingPlugin.PLUGIN_ID + ".ATTR_USE_DEFAULT_PROCESSOR"; //$NON-NLS-1$
 	public static final String ATTR_TRANSFORMER_FACTORY = JAXPLaunchingPlugin.PLUGIN_ID + ".ATTR_TRANSFORMER_FACTORY"; //$NON-NLS-1$
+	/**
+	 * Whether run mode launches transform in a worker process that stays alive between
+	 * launches, keeping the processor loaded and the stylesheets compiled. Defaults to false.
+	 * The worker's output, including <code>xsl:message</code> output, is written to
+	 * <code>worker/worker.log</code> in the launching plug-in's state location rather
+	 * than to the launch console.
+	 * 
+	 * @since 1.1
+	 */
+	public static final String ATTR_USE_WORKER = JAXPLaunchingPlugin.PLUGIN_ID + ".ATTR_USE_WORKER"; //$NON-NLS-1$
+	/**
+	 * Whether run mode launches record statistics on each stage of the pipeline. The
+	 * statistics are shown in the console, and written next to the output file as
+	 * <code>.stats.json</code> and <code>.stats.csv</code>. Defaults to false.
+	 * 
+	 * @since 1.1
+	 */
+	public static final String ATTR_PROFILE = JAXPLaunchingPlugin.PLUGIN_ID + ".ATTR_PROFILE"; //$NON-NLS-1$
 
 	public static final String XALAN_TYPE_ID = "org.eclipse.wst.xsl.xalan.processorType"; //$NON-NLS-1$
 	public static final String SAXON_TYPE_ID = "org.eclipse.wst.xsl.saxon.processorType"; //$NON-NLS-1$
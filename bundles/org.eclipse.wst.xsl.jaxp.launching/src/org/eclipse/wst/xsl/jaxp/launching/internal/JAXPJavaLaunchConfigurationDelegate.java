@@ -12,9 +12,15 @@ package org.eclipse.wst.xsl.jaxp.launching.internal;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
@@ -246,7 +252,7 @@ public class JAXPJavaLaunchConfigurationDelegate extends JavaLaunchDelegate
 		if (!launchDir.exists()) {
 			 launchDir.mkdir();
 		}
-		File file = new File(launchDir, "launch.xml"); //$NON-NLS-1$
+		File file = new File(launchDir, "launch.pipeline"); //$NON-NLS-1$
 		return file;
 	}
 
@@ -314,6 +320,15 @@ public class JAXPJavaLaunchConfigurationDelegate extends JavaLaunchDelegate
 				sb.append(" ").append(launchHelper.getEventPort()); //$NON-NLS-1$
 				sb.append(" ").append(launchHelper.getGeneratePort()); //$NON-NLS-1$
 			}
+		} else {
+			if (useWorker(configuration)) {
+				registerWorkerTarget(launchHelper.getTarget());
+				sb.append(" -worker "); //$NON-NLS-1$
+				sb.append("\"" + getWorkerDir().getAbsolutePath() + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			if (configuration.getAttribute(
+					JAXPLaunchConfigurationConstants.ATTR_PROFILE, false))
+				sb.append(" -profile"); //$NON-NLS-1$
 		}
 
 		return sb.toString();
@@ -362,28 +377,18 @@ public class JAXPJavaLaunchConfigurationDelegate extends JavaLaunchDelegate
 
 		IProcessorInstall install = getProcessorInstall(configuration, mode);
 		if (install != null && !install.getProcessorType().isJREDefault()) {
-			// clear the endorsed dir
-			File tempDir = getEndorsedDir();
-			if (tempDir.exists()) {
+			File tempDir;
+			if (useWorker(configuration)) {
+				// a running worker keeps its endorsed jars open, so they are
+				// copied once per processor rather than once per launch
+				tempDir = getWorkerEndorsedDir(install);
 				File[] children = tempDir.listFiles();
-				for (File child : children) {
-					child.delete();
-				}
-				tempDir.delete();
-			}
-			tempDir.mkdir();
-
-			// move the required jars to the endorsed dir
-			IProcessorJar[] jars = install.getProcessorJars();
-			for (int i = 0; i < jars.length; i++) {
-				URL entry = jars[i].asURL();
-				if (entry == null)
-					throw new CoreException(new Status(IStatus.ERROR,
-							JAXPLaunchingPlugin.PLUGIN_ID, IStatus.ERROR,
-							Messages.XSLTLaunchConfigurationDelegate_23
-									+ jars[i], null));
-				File file = new File(tempDir, "END_" + i + ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
-				moveFile(entry, file);
+				if (children == null
+						|| children.length != install.getProcessorJars().length)
+					copyEndorsedJars(install, tempDir);
+			} else {
+				tempDir = getEndorsedDir();
+				copyEndorsedJars(install, tempDir);
 			}
 			// add the endorsed dir
 			vmargs += " -Djava.endorsed.dirs=\"" + tempDir.getAbsolutePath() + "\""; //$NON-NLS-1$ //$NON-NLS-2$
@@ -412,6 +417,40 @@ public class JAXPJavaLaunchConfigurationDelegate extends JavaLaunchDelegate
 		return vmargs;
 	}
 
+	private static void copyEndorsedJars(IProcessorInstall install,
+			File tempDir) throws CoreException {
+		// clear the endorsed dir
+		if (tempDir.exists()) {
+			File[] children = tempDir.listFiles();
+			for (File child : children) {
+				child.delete();
+			}
+			tempDir.delete();
+		}
+		tempDir.mkdirs();
+
+		// move the required jars to the endorsed dir
+		IProcessorJar[] jars = install.getProcessorJars();
+		for (int i = 0; i < jars.length; i++) {
+			URL entry = jars[i].asURL();
+			if (entry == null)
+				throw new CoreException(new Status(IStatus.ERROR,
+						JAXPLaunchingPlugin.PLUGIN_ID, IStatus.ERROR,
+						Messages.XSLTLaunchConfigurationDelegate_23
+								+ jars[i], null));
+			File file = new File(tempDir, "END_" + i + ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
+			moveFile(entry, file);
+		}
+	}
+
+	private boolean useWorker(ILaunchConfiguration configuration)
+			throws CoreException {
+		// the debugger needs its own process
+		return !ILaunchManager.DEBUG_MODE.equals(mode)
+				&& configuration.getAttribute(
+				JAXPLaunchConfigurationConstants.ATTR_USE_WORKER, false);
+	}
+
 	private String getTransformerFactory(IProcessorInstall install) {
 		String tfactory = null;
 		if (ILaunchManager.DEBUG_MODE.equals(mode))
@@ -431,6 +470,78 @@ public class JAXPJavaLaunchConfigurationDelegate extends JavaLaunchDelegate
 		return tempLocation.toFile();
 	}
 
+	private File getWorkerDir() {
+		IPath workerLocation = Platform.getStateLocation(
+				JAXPLaunchingPlugin.getDefault().getBundle()).append("worker"); //$NON-NLS-1$
+		return workerLocation.toFile();
+	}
+
+	private void registerWorkerTarget(File target) throws CoreException {
+		// the worker only writes targets outside the state location if they
+		// are listed here
+		File workerDir = getWorkerDir();
+		File targets = new File(workerDir, "targets"); //$NON-NLS-1$
+		String path = target.getAbsolutePath();
+		try {
+			if (targets.isFile()) {
+				BufferedReader reader = new BufferedReader(
+						new InputStreamReader(new FileInputStream(targets),
+								"UTF-8")); //$NON-NLS-1$
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						if (line.equals(path))
+							return;
+					}
+				} finally {
+					reader.close();
+				}
+			}
+			workerDir.mkdirs();
+			Writer writer = new OutputStreamWriter(new FileOutputStream(
+					targets, true), "UTF-8"); //$NON-NLS-1$
+			try {
+				writer.write(path);
+				writer.write('\n');
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR,
+					JAXPLaunchingPlugin.PLUGIN_ID, IStatus.ERROR,
+					Messages.JAXPJavaLaunchConfigurationDelegate_6 + path, e));
+		}
+	}
+
+	private File getWorkerEndorsedDir(IProcessorInstall install) {
+		// named after the jars and their sizes and times, so that changing or
+		// rebuilding them gives a new directory, which in turn recycles the
+		// worker
+		StringBuffer jars = new StringBuffer(install.getId());
+		for (IProcessorJar jar : install.getProcessorJars()) {
+			URL url = jar.asURL();
+			jars.append('\n').append(url);
+			if (url != null && "file".equals(url.getProtocol())) { //$NON-NLS-1$
+				File file = toFile(url);
+				jars.append(';').append(file.length()).append(';').append(
+						file.lastModified());
+			}
+		}
+		String name = Integer.toHexString(jars.toString().hashCode());
+		return new File(new File(getWorkerDir(), "endorsed"), name); //$NON-NLS-1$
+	}
+
+	private static File toFile(URL url) {
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException e) {
+			// FileLocator gives file URLs that are not escaped
+			return new File(url.getPath());
+		} catch (IllegalArgumentException e) {
+			return new File(url.getPath());
+		}
+	}
+
 	private static void moveFile(URL src, File target) throws CoreException {
 		BufferedOutputStream bos = null;
 		BufferedInputStream bis = null;
@@ -10,23 +10,21 @@
  *******************************************************************************/
 package org.eclipse.wst.xsl.jaxp.launching.internal;
 
-import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.Iterator;
 import java.util.Map;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.wst.xsl.jaxp.debug.invoker.InvalidValueException;
 import org.eclipse.wst.xsl.jaxp.debug.invoker.PipelineDefinition;
 import org.eclipse.wst.xsl.jaxp.debug.invoker.TransformDefinition;
 import org.eclipse.wst.xsl.jaxp.debug.invoker.TypedValue;
@@ -41,8 +39,6 @@ import org.eclipse.wst.xsl.jaxp.launching.LaunchProperties;
 import org.eclipse.wst.xsl.launching.config.BaseLaunchHelper;
 import org.eclipse.wst.xsl.launching.config.LaunchAttribute;
 import org.eclipse.wst.xsl.launching.config.LaunchTransform;
-import org.eclipse.wst.xsl.launching.config.PreferenceUtil;
-import org.w3c.dom.Document;
 
 public class LaunchHelper extends BaseLaunchHelper {
 	private final LaunchAttributes attributes;
@@ -66,11 +62,9 @@ public class LaunchHelper extends BaseLaunchHelper {
 	}
 
 	public void save(File file) throws CoreException {
-		BufferedWriter writer = null;
+		OutputStream out = null;
 		try {
-			// ensure it exists
-			file.createNewFile();
-			writer = new BufferedWriter(new FileWriter(file));
+			out = new FileOutputStream(file);
 			PipelineDefinition pdef = new PipelineDefinition();
 			for (Iterator<?> iter = attributes.getAttributes().iterator(); iter
 					.hasNext();) {
@@ -104,29 +98,24 @@ public class LaunchHelper extends BaseLaunchHelper {
 				pdef.addTransformDef(tdef);
 			}
 
-			Document doc = pdef.toXML();
-			String s = PreferenceUtil.serializeDocument(doc);
-			writer.write(s);
+			pdef.writeBinary(out);
 		} catch (FileNotFoundException e) {
 			throw new CoreException(new Status(IStatus.ERROR,
 					JAXPLaunchingPlugin.PLUGIN_ID, IStatus.ERROR,
 					Messages.LaunchHelper_0, e));
-		} catch (IOException e) {
+		} catch (InvalidValueException e) {
+			// names the attribute or parameter and its type
 			throw new CoreException(new Status(IStatus.ERROR,
 					JAXPLaunchingPlugin.PLUGIN_ID, IStatus.ERROR,
-					Messages.LaunchHelper_1, e));
-		} catch (ParserConfigurationException e) {
-			throw new CoreException(new Status(IStatus.ERROR,
-					JAXPLaunchingPlugin.PLUGIN_ID, IStatus.ERROR,
-					"ParserConfigurationException", e)); //$NON-NLS-1$
-		} catch (TransformerException e) {
+					e.getMessage(), e));
+		} catch (IOException e) {
 			throw new CoreException(new Status(IStatus.ERROR,
 					JAXPLaunchingPlugin.PLUGIN_ID, IStatus.ERROR,
-					"TransformerException", e)); //$NON-NLS-1$
+					Messages.LaunchHelper_1, e));
 		} finally {
-			if (writer != null) {
+			if (out != null) {
 				try {
-					writer.close();
+					out.close();
 				} catch (IOException e) {
 					JAXPLaunchingPlugin.log(e);
 				}
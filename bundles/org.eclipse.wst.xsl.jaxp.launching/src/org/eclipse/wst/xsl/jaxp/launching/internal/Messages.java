@@ -52,6 +52,8 @@ public class Messages extends NLS {
 	public static String JAXPJavaLaunchConfigurationDelegate_4;
 
 	public static String JAXPJavaLaunchConfigurationDelegate_5;
+
+	public static String JAXPJavaLaunchConfigurationDelegate_6;
     public static String LaunchHelper_0;
     public static String LaunchHelper_1;
 	